@@ -0,0 +1,105 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import fr.gimmick.sonar.l10n.utils.PropertiesParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the analysis phases before the rules: discovery, parsing, exclusion and model build
+ * @author Mickaël Tricot
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    /** Flags of all the rules */
+    private static final Collection<Flag> FLAGS = EnumSet.allOf(Flag.class);
+
+    /**
+     * Discover the files
+     * @param tree Bundle tree
+     * @return Number of files
+     */
+    @Benchmark
+    public int discovery(BundleTreeState tree) {
+        int count = 0;
+        for (File ignored : tree.getScanner()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Parse the keys and values of the files, from memory
+     * @param tree Bundle tree
+     * @return Number of properties
+     */
+    @Benchmark
+    public int parsing(BundleTreeState tree) {
+        CountingHandler handler = new CountingHandler();
+        for (ByteBuffer content : tree.getContents()) {
+            PropertiesParser.parse(content, true, tree.getExcludedKeys(), handler);
+        }
+        return handler.count;
+    }
+
+    /**
+     * Match the keys against the excluded key prefixes
+     * @param tree Bundle tree
+     * @return Number of excluded keys
+     */
+    @Benchmark
+    public int exclusion(BundleTreeState tree) {
+        KeyPrefixMatcher excludedKeys = tree.getExcludedKeys();
+        int count = 0;
+        for (String key : tree.getParsedKeys()) {
+            if (excludedKeys.matches(key)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Build the bundle project from the files (sequential, without cache)
+     * @param tree Bundle tree
+     * @return Bundle project
+     */
+    @Benchmark
+    public BundleProject build(BundleTreeState tree) {
+        return new BundleProjectBuilder(tree.getExcludedKeys(), FLAGS, 1, 0, null, new LocaleRegistry(),
+                new L10nStatistics()).build(tree.getFiles());
+    }
+
+    /** Handler counting the properties */
+    private static final class CountingHandler implements PropertiesParser.Handler {
+
+        /** Number of properties */
+        private int count;
+
+        @Override
+        public void property(String key, char[] value, int offset, int length) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic bundle trees: bundles spread over packages, with a default file and a file per locale each
+ * @author Mickaël Tricot
+ */
+public final class BundleTreeGenerator {
+
+    /** Number of bundles per package directory */
+    private static final int BUNDLES_PER_PACKAGE = 10;
+
+    /** Number of key groups (common key prefixes which are not excluded) */
+    private static final int KEY_GROUPS = 16;
+
+    /** Prefix of the excluded key prefixes */
+    private static final String EXCLUDED_PREFIX = "excluded";
+
+    /** One key out of this is prefixed with an excluded prefix */
+    private static final int EXCLUDED_KEY_PERIOD = 10;
+
+    /** Number of packages per module directory */
+    private static final int PACKAGES_PER_MODULE = 10;
+
+    /** Random seed, so that the generated trees are identical from one run to another */
+    private static final long SEED = 42L;
+
+    /** Bundle count */
+    private final int bundles;
+
+    /** Excluded key prefix count */
+    private final int excludedPrefixes;
+
+    /** Keys per bundle */
+    private final int keys;
+
+    /** Locale count */
+    private final int locales;
+
+    /** Ratio of missing keys and blank values in the locale files */
+    private final double missingRatio;
+
+    /**
+     * Constructor
+     * @param bundles Bundle count
+     * @param locales Locale count (in addition to the default file)
+     * @param keys Keys per bundle
+     * @param missingRatio Ratio of missing keys and blank values in the locale files
+     * @param excludedPrefixes Excluded key prefix count
+     */
+    public BundleTreeGenerator(int bundles, int locales, int keys, double missingRatio, int excludedPrefixes) {
+        this.bundles = bundles;
+        this.locales = locales;
+        this.keys = keys;
+        this.missingRatio = missingRatio;
+        this.excludedPrefixes = excludedPrefixes;
+    }
+
+    /**
+     * Get the locale code of a generated locale: "aa", "ab"...
+     * @param index Locale index
+     * @return Locale code
+     */
+    private static String getLocale(int index) {
+        return new String(new char[]{(char) ('a' + index / 26 % 26), (char) ('a' + index % 26)});
+    }
+
+    /**
+     * Generate the bundle tree
+     * @param directory Root directory
+     * @throws IOException Error while writing the files
+     */
+    public void generate(File directory) throws IOException {
+        Random random = new Random(SEED);
+        for (int bundle = 0; bundle < bundles; bundle++) {
+            File packageDirectory = new File(directory, "module" + bundle / (BUNDLES_PER_PACKAGE *
+                    PACKAGES_PER_MODULE) + File.separator + "package" + bundle / BUNDLES_PER_PACKAGE);
+            String name = "bundle" + bundle;
+            write(new File(packageDirectory, name + ".properties"), getContent(random, bundle, null));
+            for (int locale = 0; locale < locales; locale++) {
+                String localeCode = getLocale(locale);
+                write(new File(packageDirectory, name + '_' + localeCode + ".properties"),
+                        getContent(random, bundle, localeCode));
+            }
+        }
+    }
+
+    /**
+     * Excluded key prefixes getter
+     * @return Excluded key prefixes
+     */
+    public List<String> getExcludedPrefixes() {
+        List<String> prefixes = new ArrayList<String>(excludedPrefixes);
+        for (int i = 0; i < excludedPrefixes; i++) {
+            prefixes.add(EXCLUDED_PREFIX + i + '.');
+        }
+        return prefixes;
+    }
+
+    /**
+     * Get the content of a bundle file
+     * @param random Random
+     * @param bundle Bundle index
+     * @param locale Locale code (null for the default file, which is complete)
+     * @return Content
+     */
+    private String getContent(Random random, int bundle, String locale) {
+        StringBuilder content = new StringBuilder("# Bundle ").append(bundle).append(", locale ").append(locale)
+                .append('\n');
+        for (int key = 0; key < keys; key++) {
+            if (locale != null && random.nextDouble() < missingRatio) {
+                continue;
+            }
+            if (excludedPrefixes > 0 && key % EXCLUDED_KEY_PERIOD == 0) {
+                content.append(EXCLUDED_PREFIX).append(key / EXCLUDED_KEY_PERIOD % excludedPrefixes).append('.');
+            } else {
+                content.append("group").append(key % KEY_GROUPS).append('.');
+            }
+            content.append("key").append(key).append(" = ");
+            if (locale == null || random.nextDouble() >= missingRatio) {
+                content.append("Value ").append(key).append(" of bundle ").append(bundle).append(" for ")
+                        .append(locale).append(" with {0} argument");
+            }
+            content.append('\n');
+        }
+        return content.toString();
+    }
+
+    /**
+     * Write a file (ISO-8859-1)
+     * @param file File
+     * @param content Content
+     * @throws IOException Error while writing the file
+     */
+    private static void write(File file, String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, "ISO-8859-1");
+    }
+}
@@ -0,0 +1,151 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.PropertiesParser;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Synthetic bundle tree, generated once per trial in a temporary directory
+ * @author Mickaël Tricot
+ */
+@State(Scope.Benchmark)
+public class BundleTreeState {
+
+    /** Bundle count */
+    @Param({"1000"})
+    public int bundles;
+
+    /** Excluded key prefix count */
+    @Param({"0", "20"})
+    public int excludedPrefixes;
+
+    /** Keys per bundle */
+    @Param({"100"})
+    public int keys;
+
+    /** Locale count */
+    @Param({"5"})
+    public int locales;
+
+    /** Ratio of missing keys and blank values in the locale files */
+    @Param({"0.05"})
+    public double missingRatio;
+
+    /** File contents, in the order of the files */
+    private List<ByteBuffer> contents;
+
+    /** Root directory */
+    private File directory;
+
+    /** Matcher for the excluded keys */
+    private KeyPrefixMatcher excludedKeys;
+
+    /** Files, in the order of the discovery */
+    private List<File> files;
+
+    /** Keys of all the files */
+    private List<String> parsedKeys;
+
+    /**
+     * Generate the bundle tree, and load it in memory for the benchmarks which do not measure the I/O
+     * @throws IOException Error while generating or reading the files
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("l10n-benchmark", "");
+        FileUtils.forceDelete(directory);
+        BundleTreeGenerator generator = new BundleTreeGenerator(bundles, locales, keys, missingRatio,
+                excludedPrefixes);
+        generator.generate(directory);
+        excludedKeys = KeyPrefixMatcher.compile(generator.getExcludedPrefixes());
+        files = new ArrayList<File>();
+        for (File file : getScanner()) {
+            files.add(file);
+        }
+        contents = new ArrayList<ByteBuffer>(files.size());
+        parsedKeys = new ArrayList<String>();
+        PropertiesParser.Handler handler = new PropertiesParser.Handler() {
+            @Override
+            public void property(String key, char[] value, int offset, int length) {
+                parsedKeys.add(key);
+            }
+        };
+        for (File file : files) {
+            ByteBuffer content = ByteBuffer.wrap(FileUtils.readFileToByteArray(file));
+            contents.add(content);
+            PropertiesParser.parse(content, false, KeyPrefixMatcher.compile(Collections.<String>emptySet()), handler);
+        }
+    }
+
+    /**
+     * Delete the bundle tree
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    /**
+     * Contents getter
+     * @return File contents
+     */
+    public List<ByteBuffer> getContents() {
+        return contents;
+    }
+
+    /**
+     * Directory getter
+     * @return Root directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Excluded keys getter
+     * @return Matcher for the excluded keys
+     */
+    public KeyPrefixMatcher getExcludedKeys() {
+        return excludedKeys;
+    }
+
+    /**
+     * Files getter
+     * @return Files
+     */
+    public List<File> getFiles() {
+        return files;
+    }
+
+    /**
+     * Parsed keys getter
+     * @return Keys of all the files
+     */
+    public List<String> getParsedKeys() {
+        return parsedKeys;
+    }
+
+    /**
+     * Get a scanner for the files of the tree
+     * @return File scanner
+     */
+    public FileScanner getScanner() {
+        return new FileScanner(Collections.singletonList(directory), L10nConfiguration.FILE_EXTENSION,
+                Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+}
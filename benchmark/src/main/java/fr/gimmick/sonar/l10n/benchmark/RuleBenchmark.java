@@ -0,0 +1,108 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nRuleRepository;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
+import fr.gimmick.sonar.l10n.model.KeyUsageScanner;
+import fr.gimmick.sonar.l10n.model.KeyUsages;
+import fr.gimmick.sonar.l10n.rules.L10nRule;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.rules.L10nRuleEngine;
+import fr.gimmick.sonar.l10n.utils.L10nActiveRules;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.Project;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of the rules, one at a time or all together, on a bundle project built once per trial
+ * @author Mickaël Tricot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RuleBenchmark {
+
+    /** Value of the rule parameter for checking all the rules in a single walk */
+    private static final String ALL_RULES = "all";
+
+    /** Rule to check: simple class name, or "all" */
+    @Param({"InconsistentPlaceholderRule", "MissingBundleRule", "MissingKeyRule", "MissingValueRule",
+            "UndefinedKeyRule", "UntranslatedValueRule", "UnusedBundleRule", "UnusedKeyRule", ALL_RULES})
+    public String rule;
+
+    /** Follow the fallback locales? */
+    @Param({"false", "true"})
+    public boolean localeFallback;
+
+    /** Active rules */
+    private L10nActiveRules activeRules;
+
+    /** Bundle project */
+    private BundleProject bundleProject;
+
+    /** Key usages (no source file: all the keys are unused) */
+    private KeyUsages keyUsages;
+
+    /** Sonar project */
+    private Project project;
+
+    /**
+     * Build the bundle project, and activate the rule(s) to check
+     * @param tree Bundle tree
+     */
+    @Setup(Level.Trial)
+    public void setUp(BundleTreeState tree) {
+        bundleProject = new BundleProjectBuilder(tree.getExcludedKeys(), EnumSet.allOf(Flag.class), 1, 0, null,
+                new LocaleRegistry(), new L10nStatistics()).build(tree.getFiles());
+        keyUsages = new KeyUsageScanner(tree.getExcludedKeys(), 1, 0, new L10nStatistics()).scan(bundleProject,
+                Collections.<File>emptyList(), true);
+        project = SonarStubs.project(tree.getDirectory());
+        RulesProfile profile = RulesProfile.create();
+        for (L10nRule l10nRule : L10nRuleRepository.RULES) {
+            if (ALL_RULES.equals(rule) || l10nRule.getClass().getSimpleName().equals(rule)) {
+                profile.activateRule(l10nRule.getRule(), null);
+            }
+        }
+        activeRules = L10nActiveRules.resolve(profile, L10nRuleRepository.RULES);
+        if (activeRules.isEmpty()) {
+            throw new IllegalArgumentException("Unknown rule: " + rule);
+        }
+    }
+
+    /**
+     * Check the rule(s) and save the violations in a stub sensor context
+     * @return Number of violations
+     */
+    @Benchmark
+    public long check() {
+        AtomicLong violations = new AtomicLong();
+        L10nContext context = new L10nContext(SonarStubs.sensorContext(violations), bundleProject.getLocales(),
+                localeFallback, activeRules, project, 0, false, new L10nStatistics(), keyUsages);
+        new L10nRuleEngine(activeRules.getRules(), context).walk(bundleProject);
+        context.flush();
+        return violations.get();
+    }
+}
@@ -0,0 +1,105 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stubs of the Sonar API, for running the rules outside of a Sonar batch
+ * @author Mickaël Tricot
+ */
+final class SonarStubs {
+
+    /**
+     * Create a stub of a Sonar interface: every method returns the default value of its type, unless handled
+     * @param type Interface
+     * @param handler Handler for some methods (returns null for the methods it does not handle)
+     * @param <T> Interface type
+     * @return Stub
+     */
+    private static <T> T stub(Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = handler.invoke(proxy, method, args);
+                        if (result == null && method.getReturnType().isPrimitive()) {
+                            result = getDefaultValue(method.getReturnType());
+                        }
+                        return result;
+                    }
+                }));
+    }
+
+    /**
+     * Get the default value of a primitive type
+     * @param type Primitive type
+     * @return Default value (null for void)
+     */
+    private static Object getDefaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == double.class) {
+            return 0D;
+        }
+        return null;
+    }
+
+    /**
+     * Create a Sonar project
+     * @param basedir Project base directory
+     * @return Project
+     */
+    static Project project(final File basedir) {
+        Project project = new Project("l10n-benchmark");
+        project.setFileSystem(stub(ProjectFileSystem.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getBasedir".equals(method.getName()) ? basedir : null;
+            }
+        }));
+        return project;
+    }
+
+    /**
+     * Create a Sonar sensor context, which only counts the violations
+     * @param violations Violation counter
+     * @return Sensor context
+     */
+    static SensorContext sensorContext(final AtomicLong violations) {
+        return stub(SensorContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("saveViolations".equals(method.getName())) {
+                    violations.addAndGet(((Collection<?>) args[0]).size());
+                } else if ("saveViolation".equals(method.getName())) {
+                    violations.incrementAndGet();
+                }
+                return null;
+            }
+        });
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private SonarStubs() {
+    }
+}
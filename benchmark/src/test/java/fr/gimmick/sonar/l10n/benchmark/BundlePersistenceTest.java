@@ -0,0 +1,183 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleCache;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
+import fr.gimmick.sonar.l10n.model.BundleSnapshot;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
+import fr.gimmick.sonar.l10n.model.KeyDictionary;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of the write/read round trips of the bundle cache and of the bundle snapshot, on a generated bundle tree
+ * @author Mickaël Tricot
+ */
+public final class BundlePersistenceTest {
+
+    /** Active rule flags: the files are fully processed */
+    private static final Collection<Flag> FLAGS = EnumSet.allOf(Flag.class);
+
+    /** Last modification date of the files, old enough for them to be cached and snapshotted */
+    private static final long LAST_MODIFIED = (System.currentTimeMillis() - 3600000L) / 1000L * 1000L;
+
+    /** Temporary folder */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Files of the bundle tree */
+    private final List<File> files = new ArrayList<File>();
+
+    /** Generator of the bundle tree */
+    private final BundleTreeGenerator generator = new BundleTreeGenerator(40, 3, 50, 0.2, 2);
+
+    /**
+     * Generate the bundle tree
+     * @throws IOException Error while writing the files
+     */
+    @Before
+    public void setUp() throws IOException {
+        File directory = folder.newFolder("tree");
+        generator.generate(directory);
+        for (File file : new FileScanner(Collections.singletonList(directory), L10nConfiguration.FILE_EXTENSION,
+                Collections.<String>emptyList(), Collections.<String>emptyList())) {
+            files.add(file);
+            setLastModified(file, LAST_MODIFIED);
+        }
+    }
+
+    /**
+     * Set the last modification date of a file
+     * @param file File
+     * @param lastModified Last modification date
+     * @throws IOException The date cannot be set
+     */
+    private static void setLastModified(File file, long lastModified) throws IOException {
+        if (!file.setLastModified(lastModified)) {
+            throw new IOException("Cannot set the last modification date of '" + file + '\'');
+        }
+    }
+
+    /**
+     * Build the bundle project
+     * @param cache Cache of the bundle files (nullable)
+     * @param statistics Analysis statistics
+     * @return Bundle project
+     */
+    private BundleProject build(BundleCache cache, L10nStatistics statistics) {
+        return new BundleProjectBuilder(KeyPrefixMatcher.compile(generator.getExcludedPrefixes()), FLAGS, 1, 0,
+                cache, new LocaleRegistry(), statistics).build(files);
+    }
+
+    /**
+     * Describe a bundle project, independently of the key IDs and of the order of the bundles
+     * @param bundleProject Bundle project
+     * @return Description: one line per locale, and per key of each bundle file
+     */
+    private static Collection<String> describe(BundleProject bundleProject) {
+        Collection<String> description = new TreeSet<String>();
+        for (Locale locale : bundleProject.getLocales()) {
+            description.add("locale " + locale);
+        }
+        for (Bundle bundle : bundleProject.getBundles().values()) {
+            String bundlePath = bundle.getId().getDirectory().getPath() + File.separator + bundle.getId().getName();
+            KeyDictionary dictionary = bundle.getKeyDictionary();
+            for (Map.Entry<Locale, BundleFile> entry : bundle.getFiles().entrySet()) {
+                BundleFile file = entry.getValue();
+                String filePath = bundlePath + ' ' + entry.getKey() + ' ' + file.getFileName();
+                description.add(filePath + " allKeysExcluded=" + file.isAllKeysExcluded());
+                KeyBitSet keyIds = file.getKeyIds();
+                int index = 0;
+                for (int id = keyIds.nextSetBit(0); id >= 0; id = keyIds.nextSetBit(id + 1), index++) {
+                    description.add(filePath + ' ' + dictionary.getKey(id) + " blank=" +
+                            file.getBlankValueKeyIds().get(id) + " hash=" + file.getValueHashes()[index]);
+                }
+                for (int i = 0; i < file.getSignatureKeyIds().length; i++) {
+                    description.add(filePath + ' ' + dictionary.getKey(file.getSignatureKeyIds()[i]) +
+                            " signature=" + file.getSignatures()[i]);
+                }
+            }
+        }
+        return description;
+    }
+
+    /**
+     * The bundle files read from the cache are the same as the parsed ones, and a modified file is parsed again
+     * @throws IOException Error while writing the files
+     */
+    @Test
+    public void testCacheRoundTrip() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "l10n.cache");
+        L10nStatistics statistics = new L10nStatistics();
+        BundleCache cache = BundleCache.load(cacheFile, FLAGS, generator.getExcludedPrefixes());
+        Collection<String> expected = describe(build(cache, statistics));
+        assertEquals(0, statistics.getCounter(L10nStatistics.CACHED_FILES));
+        cache.save(false);
+
+        statistics = new L10nStatistics();
+        cache = BundleCache.load(cacheFile, FLAGS, generator.getExcludedPrefixes());
+        assertEquals(expected, describe(build(cache, statistics)));
+        assertEquals(files.size(), statistics.getCounter(L10nStatistics.CACHED_FILES));
+        cache.save(false);
+
+        File modifiedFile = files.get(files.size() / 2);
+        FileUtils.writeStringToFile(modifiedFile, "group0.key0 = Modified {0} {1}\n", "ISO-8859-1");
+        setLastModified(modifiedFile, LAST_MODIFIED);
+        statistics = new L10nStatistics();
+        cache = BundleCache.load(cacheFile, FLAGS, generator.getExcludedPrefixes());
+        assertEquals(describe(build(null, new L10nStatistics())), describe(build(cache, statistics)));
+        assertEquals(files.size() - 1, statistics.getCounter(L10nStatistics.CACHED_FILES));
+    }
+
+    /**
+     * The bundle project loaded from the snapshot is the same as the built one, as long as the files did not change
+     * @throws IOException Error while writing the files
+     */
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        File snapshotFile = new File(folder.getRoot(), "l10n.snapshot");
+        BundleSnapshot snapshot = new BundleSnapshot(snapshotFile, FLAGS, generator.getExcludedPrefixes());
+        assertNull(snapshot.load(files));
+        BundleProject bundleProject = build(null, new L10nStatistics());
+        snapshot.save(bundleProject);
+
+        BundleProject loadedProject = new BundleSnapshot(snapshotFile, FLAGS, generator.getExcludedPrefixes())
+                .load(files);
+        assertNotNull(loadedProject);
+        assertEquals(describe(bundleProject), describe(loadedProject));
+
+        assertNull(new BundleSnapshot(snapshotFile, EnumSet.of(Flag.UsesKeys), generator.getExcludedPrefixes())
+                .load(files));
+        assertNull(new BundleSnapshot(snapshotFile, FLAGS, generator.getExcludedPrefixes())
+                .load(files.subList(1, files.size())));
+        File modifiedFile = files.get(files.size() / 2);
+        setLastModified(modifiedFile, LAST_MODIFIED - 1000L);
+        assertNull(new BundleSnapshot(snapshotFile, FLAGS, generator.getExcludedPrefixes()).load(files));
+    }
+}
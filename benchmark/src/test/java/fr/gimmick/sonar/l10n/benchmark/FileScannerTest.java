@@ -0,0 +1,197 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the file scanner directory globs on a generated bundle tree, compared to a recursive walk and a recursive
+ * glob matching
+ * @author Mickaël Tricot
+ */
+public final class FileScannerTest {
+
+    /** Glob patterns of directories */
+    private static final List<String> GLOBS = Arrays.asList("", "*", "**", "**/**", "module1", "module1/**",
+            "module?", "module*/**", "**/package1", "**/package1*", "*/package?", "module?/package2*", "**/package2/**",
+            "module0/package1?", "module1/*", "**/module2/**", "module", "?odule0/**", "package1", "unknown/**");
+
+    /** Temporary folder */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Root directory of the bundle tree */
+    private File directory;
+
+    /**
+     * Generate the bundle tree: 3 modules of 10, 10 and 5 packages
+     * @throws IOException Error while writing the files
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("tree");
+        new BundleTreeGenerator(250, 1, 2, 0, 0).generate(directory);
+        // files outside the package directories
+        new File(directory, "root.properties").createNewFile();
+        new File(directory, "module1" + File.separator + "module.properties").createNewFile();
+        new File(directory, "module1" + File.separator + "module.txt").createNewFile();
+    }
+
+    /**
+     * Does a path match a glob, from given indexes?
+     * @param glob Glob pattern
+     * @param g Index in the glob
+     * @param path Directory path
+     * @param p Index in the path
+     * @return TRUE if matching
+     */
+    private static boolean matches(String glob, int g, String path, int p) {
+        if (g == glob.length()) {
+            return p == path.length();
+        }
+        if (glob.startsWith("/**", g) && g + 3 == glob.length()) {
+            // the directory itself, or any of its subdirectories
+            return p == path.length() || path.charAt(p) == '/';
+        }
+        if (glob.startsWith("**/", g)) {
+            // any number of directories
+            if (matches(glob, g + 3, path, p)) {
+                return true;
+            }
+            for (int i = path.indexOf('/', p); i >= 0; i = path.indexOf('/', i + 1)) {
+                if (matches(glob, g + 3, path, i + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (glob.startsWith("**", g)) {
+            for (int i = p; i <= path.length(); i++) {
+                if (matches(glob, g + 2, path, i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (glob.charAt(g) == '*') {
+            for (int i = p; ; i++) {
+                if (matches(glob, g + 1, path, i)) {
+                    return true;
+                }
+                if (i == path.length() || path.charAt(i) == '/') {
+                    return false;
+                }
+            }
+        }
+        if (p == path.length() || path.charAt(p) == '/' && glob.charAt(g) != '/') {
+            return false;
+        }
+        return (glob.charAt(g) == '?' || glob.charAt(g) == path.charAt(p)) && matches(glob, g + 1, path, p + 1);
+    }
+
+    /**
+     * Does a path match one of the globs?
+     * @param globs Glob patterns
+     * @param path Directory path
+     * @return TRUE if matching
+     */
+    private static boolean matches(Collection<String> globs, String path) {
+        for (String glob : globs) {
+            if (matches(glob, 0, path, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walk a directory recursively: its files, then its subdirectories, sorted by name
+     * @param walked Directory to walk
+     * @param path Directory path, relative to the root directory
+     * @param included Glob patterns of the directories to take the files from (all if empty)
+     * @param excluded Glob patterns of the directories not to walk into
+     * @param files Files found
+     */
+    private static void walk(File walked, String path, Collection<String> included, Collection<String> excluded,
+            List<File> files) {
+        File[] children = walked.listFiles();
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isFile() && child.getName().endsWith('.' + L10nConfiguration.FILE_EXTENSION) &&
+                    (included.isEmpty() || matches(included, path))) {
+                files.add(child);
+            }
+        }
+        for (File child : children) {
+            String childPath = path.isEmpty() ? child.getName() : path + '/' + child.getName();
+            if (child.isDirectory() && !matches(excluded, childPath)) {
+                walk(child, childPath, included, excluded, files);
+            }
+        }
+    }
+
+    /**
+     * Check that the scanner finds the same files as the reference walk
+     * @param included Glob patterns of the directories to take the files from (all if empty)
+     * @param excluded Glob patterns of the directories not to walk into
+     */
+    private void assertScanned(Collection<String> included, Collection<String> excluded) {
+        List<File> expected = new ArrayList<File>();
+        walk(directory, "", included, excluded, expected);
+        List<File> scanned = new ArrayList<File>();
+        for (File file : new FileScanner(Collections.singletonList(directory), L10nConfiguration.FILE_EXTENSION,
+                included, excluded)) {
+            scanned.add(file);
+        }
+        assertEquals(included + " " + excluded, expected, scanned);
+    }
+
+    /**
+     * The reference glob matching, on a few paths
+     */
+    @Test
+    public void testReferenceGlobs() {
+        assertTrue(matches("**/a", 0, "a", 0));
+        assertTrue(matches("**/a", 0, "b/c/a", 0));
+        assertFalse(matches("**/a", 0, "ba", 0));
+        assertTrue(matches("a/**", 0, "a", 0));
+        assertTrue(matches("a/**", 0, "a/b/c", 0));
+        assertFalse(matches("a/**", 0, "ab", 0));
+        assertFalse(matches("a*", 0, "ab/c", 0));
+        assertTrue(matches("a?c", 0, "abc", 0));
+        assertFalse(matches("a?c", 0, "a/c", 0));
+        assertTrue(matches("", 0, "", 0));
+    }
+
+    /**
+     * Included and excluded directories, one glob pattern or two
+     */
+    @Test
+    public void testGlobs() {
+        List<String> none = Collections.emptyList();
+        assertScanned(none, none);
+        for (String glob : GLOBS) {
+            assertScanned(Collections.singletonList(glob), none);
+            assertScanned(none, Collections.singletonList(glob));
+            for (String otherGlob : GLOBS) {
+                assertScanned(Collections.singletonList(glob), Collections.singletonList(otherGlob));
+                assertScanned(Arrays.asList(glob, otherGlob), none);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
+import fr.gimmick.sonar.l10n.model.KeyDictionary;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the key bitsets of generated bundle trees, compared to java.util.BitSet
+ * @author Mickaël Tricot
+ */
+public final class KeyBitSetTest {
+
+    /** Temporary folder */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Get the reference bitset of some keys
+     * @param dictionary Key dictionary
+     * @param keys Keys
+     * @return Bitset of the key IDs
+     */
+    private static BitSet getBitSet(KeyDictionary dictionary, Iterable<String> keys) {
+        BitSet bitSet = new BitSet();
+        for (String key : keys) {
+            bitSet.set(dictionary.getId(key));
+        }
+        return bitSet;
+    }
+
+    /**
+     * Check that a key bitset is equivalent to its reference bitset
+     * @param expected Reference bitset
+     * @param keyBitSet Key bitset
+     * @param size Number of bits to check
+     */
+    private static void assertBitSet(BitSet expected, KeyBitSet keyBitSet, int size) {
+        assertEquals(expected.cardinality(), keyBitSet.cardinality());
+        assertEquals(expected.isEmpty(), keyBitSet.isEmpty());
+        for (int i = 0; i < size; i++) {
+            assertEquals(expected.get(i), keyBitSet.get(i));
+            assertEquals(expected.nextSetBit(i), keyBitSet.nextSetBit(i));
+        }
+    }
+
+    /**
+     * Check the key bitsets of a generated bundle tree: keys and blank values of the files, and keys missing from the
+     * files (AND-NOT of the bundle keys and of the file keys)
+     * @param generator Generator of the bundle tree
+     * @throws IOException Error while reading or writing the files
+     */
+    private void assertKeyBitSets(BundleTreeGenerator generator) throws IOException {
+        File directory = folder.newFolder();
+        generator.generate(directory);
+        List<File> files = new ArrayList<File>();
+        for (File file : new FileScanner(Collections.singletonList(directory), L10nConfiguration.FILE_EXTENSION,
+                Collections.<String>emptyList(), Collections.<String>emptyList())) {
+            files.add(file);
+        }
+        BundleProject bundleProject = new BundleProjectBuilder(KeyPrefixMatcher.compile(
+                generator.getExcludedPrefixes()), EnumSet.allOf(Flag.class), 1, 0, null, new LocaleRegistry(),
+                new L10nStatistics()).build(files);
+        for (Bundle bundle : bundleProject.getBundles().values()) {
+            KeyDictionary dictionary = bundle.getKeyDictionary();
+            // bits beyond the last word of the bitsets
+            int size = dictionary.size() + 2 * Long.SIZE;
+            BitSet bundleKeyIds = new BitSet();
+            for (Map.Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
+                Map<String, String> values = ReferenceBundles.load(L10nUtils.getFile(bundle, file.getKey()),
+                        generator.getExcludedPrefixes());
+                BitSet keyIds = getBitSet(dictionary, values.keySet());
+                BitSet blankValueKeyIds = new BitSet();
+                for (Map.Entry<String, String> value : values.entrySet()) {
+                    if (ReferenceBundles.isBlank(value.getValue())) {
+                        blankValueKeyIds.set(dictionary.getId(value.getKey()));
+                    }
+                }
+                assertBitSet(keyIds, file.getValue().getKeyIds(), size);
+                assertBitSet(blankValueKeyIds, file.getValue().getBlankValueKeyIds(), size);
+                bundleKeyIds.or(keyIds);
+            }
+            assertBitSet(bundleKeyIds, bundle.getKeyIds(), size);
+            for (BundleFile file : bundle.getFiles().values()) {
+                BitSet missingKeyIds = (BitSet) bundleKeyIds.clone();
+                missingKeyIds.andNot(getBitSet(dictionary, getKeys(dictionary, file.getKeyIds())));
+                for (int i = 0; i < size; i++) {
+                    assertEquals(missingKeyIds.nextSetBit(i), bundle.getKeyIds().nextSetBitAndNot(file.getKeyIds(), i));
+                    assertEquals(-1, file.getKeyIds().nextSetBitAndNot(bundle.getKeyIds(), i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the keys of a key bitset
+     * @param dictionary Key dictionary
+     * @param keyIds Key bitset
+     * @return Keys
+     */
+    private static List<String> getKeys(KeyDictionary dictionary, KeyBitSet keyIds) {
+        List<String> keys = new ArrayList<String>();
+        for (int id = keyIds.nextSetBit(0); id >= 0; id = keyIds.nextSetBit(id + 1)) {
+            keys.add(dictionary.getKey(id));
+        }
+        return keys;
+    }
+
+    /**
+     * Key bitsets of a single word, of several words, sparse and dense
+     * @throws IOException Error while reading or writing the files
+     */
+    @Test
+    public void testKeyBitSets() throws IOException {
+        assertKeyBitSets(new BundleTreeGenerator(5, 2, 40, 0.2, 0));
+        assertKeyBitSets(new BundleTreeGenerator(5, 2, 300, 0.05, 3));
+        assertKeyBitSets(new BundleTreeGenerator(5, 2, 300, 0.9, 3));
+        assertKeyBitSets(new BundleTreeGenerator(5, 2, 130, 0, 0));
+    }
+}
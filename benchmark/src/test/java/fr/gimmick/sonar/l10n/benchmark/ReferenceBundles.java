@@ -0,0 +1,98 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Reference reading of the generated bundle files, with java.util.Properties
+ * @author Mickaël Tricot
+ */
+final class ReferenceBundles {
+
+    /** Separator between the bundle name and the locale in the file names */
+    private static final char LOCALE_SEPARATOR = '_';
+
+    /**
+     * Group files by bundle
+     * @param files Bundle files
+     * @return Bundles: directory and name -> locale code (null for the default file) -> file
+     */
+    static Map<String, Map<String, File>> getBundles(Collection<File> files) {
+        Map<String, Map<String, File>> bundles = new TreeMap<String, Map<String, File>>();
+        for (File file : files) {
+            String baseName = FilenameUtils.getBaseName(file.getName());
+            int separator = baseName.indexOf(LOCALE_SEPARATOR);
+            String name = separator < 0 ? baseName : baseName.substring(0, separator);
+            String bundle = new File(file.getParentFile(), name).getPath();
+            Map<String, File> bundleFiles = bundles.get(bundle);
+            if (bundleFiles == null) {
+                bundleFiles = new LinkedHashMap<String, File>();
+                bundles.put(bundle, bundleFiles);
+            }
+            bundleFiles.put(separator < 0 ? null : baseName.substring(separator + 1), file);
+        }
+        return bundles;
+    }
+
+    /**
+     * Is a value blank, as for the plugin? (only control characters and spaces)
+     * @param value Value
+     * @return TRUE if blank
+     */
+    static boolean isBlank(String value) {
+        return value.trim().isEmpty();
+    }
+
+    /**
+     * Load the properties of a file, without the excluded keys
+     * @param file File
+     * @param excludedPrefixes Excluded key prefixes
+     * @return Properties: key -> value, sorted by key
+     * @throws IOException Error while reading the file
+     */
+    static Map<String, String> load(File file, Collection<String> excludedPrefixes) throws IOException {
+        Properties properties = new Properties();
+        InputStream input = FileUtils.openInputStream(file);
+        try {
+            properties.load(input);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        Map<String, String> values = new TreeMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!isExcluded(key, excludedPrefixes)) {
+                values.put(key, properties.getProperty(key));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Is a key excluded?
+     * @param key Key
+     * @param excludedPrefixes Excluded key prefixes
+     * @return TRUE if the key starts with one of the prefixes
+     */
+    private static boolean isExcluded(String key, Collection<String> excludedPrefixes) {
+        for (String excludedPrefix : excludedPrefixes) {
+            if (key.startsWith(excludedPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private ReferenceBundles() {
+    }
+}
@@ -0,0 +1,274 @@
+package fr.gimmick.sonar.l10n.benchmark;
+
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.L10nRuleRepository;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
+import fr.gimmick.sonar.l10n.model.KeyUsageScanner;
+import fr.gimmick.sonar.l10n.model.KeyUsages;
+import fr.gimmick.sonar.l10n.rules.InconsistentPlaceholderRule;
+import fr.gimmick.sonar.l10n.rules.L10nRule;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.rules.L10nRuleEngine;
+import fr.gimmick.sonar.l10n.rules.MissingBundleRule;
+import fr.gimmick.sonar.l10n.rules.MissingKeyRule;
+import fr.gimmick.sonar.l10n.rules.MissingValueRule;
+import fr.gimmick.sonar.l10n.rules.UndefinedKeyRule;
+import fr.gimmick.sonar.l10n.rules.UntranslatedValueRule;
+import fr.gimmick.sonar.l10n.rules.UnusedBundleRule;
+import fr.gimmick.sonar.l10n.rules.UnusedKeyRule;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nActiveRules;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.profiles.RulesProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the violation counts of the rules on a generated bundle tree, compared to the counts computed from the files
+ * read with java.util.Properties
+ * @author Mickaël Tricot
+ */
+public final class RuleViolationsTest {
+
+    /** Key used in the source file */
+    private static final String USED_KEY = "group1.key1";
+
+    /** Placeholder in a value */
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{[^}]*\\}");
+
+    /** Temporary folder */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Bundle project */
+    private BundleProject bundleProject;
+
+    /** Files of the bundle tree */
+    private final List<File> files = new ArrayList<File>();
+
+    /** Generator of the bundle tree */
+    private final BundleTreeGenerator generator = new BundleTreeGenerator(40, 3, 50, 0.2, 2);
+
+    /** Key usages */
+    private KeyUsages keyUsages;
+
+    /**
+     * Generate the bundle tree, altered so that every rule has violations, and build the bundle project
+     * @throws IOException Error while writing the files
+     */
+    @Before
+    public void setUp() throws IOException {
+        File directory = folder.newFolder("tree");
+        generator.generate(directory);
+        File packageDirectory = new File(directory, "module0" + File.separator + "package0");
+        // missing bundle
+        FileUtils.forceDelete(new File(packageDirectory, "bundle2_ab.properties"));
+        // untranslated values
+        FileUtils.copyFile(new File(packageDirectory, "bundle0.properties"),
+                new File(packageDirectory, "bundle0_aa.properties"));
+        // inconsistent placeholders
+        File placeholderFile = new File(packageDirectory, "bundle1_aa.properties");
+        FileUtils.writeStringToFile(placeholderFile,
+                FileUtils.readFileToString(placeholderFile, "ISO-8859-1").replace("{0}", "{1}"), "ISO-8859-1");
+        // empty bundle
+        FileUtils.writeStringToFile(new File(packageDirectory, "empty.properties"), "# empty\n", "ISO-8859-1");
+        FileUtils.writeStringToFile(new File(packageDirectory, "empty_aa.properties"), "# empty\n", "ISO-8859-1");
+        // used and undefined keys
+        File source = folder.newFile("Usages.java");
+        FileUtils.writeStringToFile(source, "get(\"" + USED_KEY + "\");\nget(\"group1.undefined\");\n", "UTF-8");
+
+        for (File file : new FileScanner(Collections.singletonList(directory), L10nConfiguration.FILE_EXTENSION,
+                Collections.<String>emptyList(), Collections.<String>emptyList())) {
+            files.add(file);
+        }
+        KeyPrefixMatcher excludedKeys = KeyPrefixMatcher.compile(generator.getExcludedPrefixes());
+        bundleProject = new BundleProjectBuilder(excludedKeys, EnumSet.allOf(Flag.class), 1, 0, null,
+                new LocaleRegistry(), new L10nStatistics()).build(files);
+        keyUsages = new KeyUsageScanner(excludedKeys, 1, 0, new L10nStatistics()).scan(bundleProject,
+                Collections.singletonList(source), true);
+    }
+
+    /**
+     * Check rules on the bundle project, as the rule benchmark does
+     * @param rules Rules to check
+     * @param localeFallback Follow the fallback locales?
+     * @return Number of violations
+     */
+    private long check(Collection<L10nRule> rules, boolean localeFallback) {
+        RulesProfile profile = RulesProfile.create();
+        for (L10nRule rule : rules) {
+            profile.activateRule(rule.getRule(), null);
+        }
+        L10nActiveRules activeRules = L10nActiveRules.resolve(profile, L10nRuleRepository.RULES);
+        AtomicLong violations = new AtomicLong();
+        L10nContext context = new L10nContext(SonarStubs.sensorContext(violations), bundleProject.getLocales(),
+                localeFallback, activeRules, SonarStubs.project(folder.getRoot()), 0, false, new L10nStatistics(),
+                keyUsages);
+        new L10nRuleEngine(activeRules.getRules(), context).walk(bundleProject);
+        context.flush();
+        return violations.get();
+    }
+
+    /**
+     * Count the violations of each rule from the files read with java.util.Properties
+     * @param localeFallback Follow the fallback locales? (the fallback of the generated locales is the default file)
+     * @return Violation counts: rule class -> count
+     * @throws IOException Error while reading the files
+     */
+    private Map<Class<?>, Long> getExpectedViolations(boolean localeFallback) throws IOException {
+        long missingBundles = 0;
+        long missingKeys = 0;
+        long missingValues = 0;
+        long inconsistentPlaceholders = 0;
+        long untranslatedValues = 0;
+        long unusedBundles = 0;
+        long unusedKeys = 0;
+        Map<String, Map<String, File>> bundles = ReferenceBundles.getBundles(files);
+        Set<String> locales = new HashSet<String>();
+        for (Map<String, File> bundleFiles : bundles.values()) {
+            locales.addAll(bundleFiles.keySet());
+        }
+        for (Map<String, File> bundleFiles : bundles.values()) {
+            Map<String, Map<String, String>> values = new HashMap<String, Map<String, String>>();
+            Set<String> bundleKeys = new HashSet<String>();
+            for (Map.Entry<String, File> file : bundleFiles.entrySet()) {
+                values.put(file.getKey(), ReferenceBundles.load(file.getValue(), generator.getExcludedPrefixes()));
+                bundleKeys.addAll(values.get(file.getKey()).keySet());
+            }
+            Map<String, String> defaultValues = values.get(null);
+            for (String locale : locales) {
+                if (!bundleFiles.containsKey(locale) && (!localeFallback || defaultValues == null)) {
+                    missingBundles++;
+                }
+            }
+            if (bundleKeys.isEmpty()) {
+                unusedBundles += bundleFiles.size();
+            }
+            unusedKeys += bundleKeys.size() - (bundleKeys.contains(USED_KEY) ? 1 : 0);
+            for (Map.Entry<String, Map<String, String>> file : values.entrySet()) {
+                Set<String> keys = new HashSet<String>(file.getValue().keySet());
+                if (localeFallback && file.getKey() != null && defaultValues != null) {
+                    keys.addAll(defaultValues.keySet());
+                }
+                missingKeys += bundleKeys.size() - keys.size();
+                for (Map.Entry<String, String> value : file.getValue().entrySet()) {
+                    String defaultValue = defaultValues == null ? null : defaultValues.get(value.getKey());
+                    if (ReferenceBundles.isBlank(value.getValue())) {
+                        missingValues++;
+                    } else if (file.getKey() != null && defaultValue != null &&
+                            !ReferenceBundles.isBlank(defaultValue)) {
+                        if (!getPlaceholders(value.getValue()).equals(getPlaceholders(defaultValue))) {
+                            inconsistentPlaceholders++;
+                        }
+                        if (value.getValue().equals(defaultValue) && hasLetter(value.getValue())) {
+                            untranslatedValues++;
+                        }
+                    }
+                }
+            }
+        }
+        Map<Class<?>, Long> violations = new HashMap<Class<?>, Long>();
+        violations.put(InconsistentPlaceholderRule.class, inconsistentPlaceholders);
+        violations.put(MissingBundleRule.class, missingBundles);
+        violations.put(MissingKeyRule.class, missingKeys);
+        violations.put(MissingValueRule.class, missingValues);
+        violations.put(UndefinedKeyRule.class, 1L);
+        violations.put(UntranslatedValueRule.class, untranslatedValues);
+        violations.put(UnusedBundleRule.class, unusedBundles);
+        violations.put(UnusedKeyRule.class, unusedKeys);
+        return violations;
+    }
+
+    /**
+     * Get the placeholders of a value
+     * @param value Value
+     * @return Placeholders, in their order
+     */
+    private static List<String> getPlaceholders(String value) {
+        List<String> placeholders = new ArrayList<String>();
+        for (Matcher matcher = PLACEHOLDER.matcher(value); matcher.find(); ) {
+            placeholders.add(matcher.group());
+        }
+        return placeholders;
+    }
+
+    /**
+     * Does a value have a letter?
+     * @param value Value
+     * @return TRUE if it has a letter
+     */
+    private static boolean hasLetter(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isLetter(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the violation counts, one rule at a time and all the rules together
+     * @param localeFallback Follow the fallback locales?
+     * @throws IOException Error while reading the files
+     */
+    private void assertViolations(boolean localeFallback) throws IOException {
+        Map<Class<?>, Long> expected = getExpectedViolations(localeFallback);
+        long total = 0;
+        for (L10nRule rule : L10nRuleRepository.RULES) {
+            long violations = expected.get(rule.getClass());
+            assertEquals(rule.getClass().getSimpleName(), violations,
+                    check(Collections.singletonList(rule), localeFallback));
+            total += violations;
+        }
+        assertEquals(total, check(L10nRuleRepository.RULES, localeFallback));
+    }
+
+    /**
+     * Violation counts, without locale fallback: every rule has violations
+     * @throws IOException Error while reading the files
+     */
+    @Test
+    public void testViolations() throws IOException {
+        for (Map.Entry<Class<?>, Long> violations : getExpectedViolations(false).entrySet()) {
+            assertTrue(violations.getKey().getSimpleName(), violations.getValue() > 0);
+        }
+        assertViolations(false);
+    }
+
+    /**
+     * Violation counts, with locale fallback: the default files are complete, so no key and no bundle is missing
+     * @throws IOException Error while reading the files
+     */
+    @Test
+    public void testViolationsWithLocaleFallback() throws IOException {
+        Map<Class<?>, Long> violations = getExpectedViolations(true);
+        assertEquals(0L, violations.get(MissingKeyRule.class).longValue());
+        assertEquals(0L, violations.get(MissingBundleRule.class).longValue());
+        assertViolations(true);
+    }
+}
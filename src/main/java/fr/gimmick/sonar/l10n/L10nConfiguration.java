@@ -1,11 +1,13 @@
 package fr.gimmick.sonar.l10n;
 
+import com.google.common.base.Supplier;
 import fr.gimmick.sonar.l10n.rules.L10nRule;
-import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.FileScanner;
+import fr.gimmick.sonar.l10n.utils.GitUtils;
+import fr.gimmick.sonar.l10n.utils.L10nActiveRules;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
-import org.apache.commons.io.FileUtils;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.slf4j.Logger;
@@ -16,6 +18,7 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.rules.ActiveRule;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,6 +32,12 @@ import java.util.regex.Pattern;
  */
 public final class L10nConfiguration {
 
+    /** Cache file, relative to the Sonar working directory */
+    private static final String CACHE_FILE = "l10n/bundles.cache";
+
+    /** Snapshot file, relative to the Sonar working directory */
+    private static final String SNAPSHOT_FILE = "l10n/bundles.snapshot";
+
     /** CSV splitter */
     private static final Pattern CSV_SPLITTER = Pattern.compile(",");
 
@@ -38,21 +47,99 @@ public final class L10nConfiguration {
     /** Logger */
     private static final Logger LOG = LoggerFactory.getLogger(L10nConfiguration.class);
 
+    /** Property for enabling the cache of the bundle files */
+    public static final String PROPERTY_CACHE_KEY = "sonar.l10n.cache";
+
+    /** Default value for enabling the cache of the bundle files */
+    public static final String PROPERTY_CACHE_VALUE = "false";
+
+    /** Property for the files changed, to analyse their bundles only */
+    public static final String PROPERTY_CHANGED_FILES_KEY = "sonar.l10n.changedFiles";
+
+    /** Value for reading the files changed from git */
+    public static final String PROPERTY_CHANGED_FILES_VALUE_GIT = "git";
+
+    /** Property for the directories not to walk into */
+    public static final String PROPERTY_EXCLUDE_DIRECTORIES_KEY = "sonar.l10n.excludeDirectories";
+
     /** Property for excluding key prefixes from the analysis */
     public static final String PROPERTY_EXCLUDE_KEY_PREFIXES = "sonar.l10n.excludeKeyPrefixes";
 
+    /** Property for the directories to take the files from */
+    public static final String PROPERTY_INCLUDE_DIRECTORIES_KEY = "sonar.l10n.includeDirectories";
+
+    /** Property for the git base commit, the files changed since its merge base with HEAD being analysed */
+    public static final String PROPERTY_GIT_BASE_KEY = "sonar.l10n.gitBase";
+
+    /** Default value for the git base commit (changes of the working tree only) */
+    public static final String PROPERTY_GIT_BASE_VALUE = "HEAD";
+
+    /** Property for following the fallback locales (fr_CA -> fr -> null), as ResourceBundle does */
+    public static final String PROPERTY_LOCALE_FALLBACK_KEY = "sonar.l10n.localeFallback";
+
+    /** Default value for following the fallback locales */
+    public static final String PROPERTY_LOCALE_FALLBACK_VALUE = "false";
+
     /** Property for locales */
     public static final String PROPERTY_LOCALES_KEY = "sonar.l10n.locales";
 
     /** Value for locale null */
     public static final String PROPERTY_LOCALES_VALUE_NULL = "null";
 
+    /** Property for the maximum number of violations per resource */
+    public static final String PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_KEY = "sonar.l10n.maxViolationsPerResource";
+
+    /** Default value for the maximum number of violations per resource (no limit) */
+    public static final String PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_VALUE = "0";
+
+    /** Property for saving the analysis statistics as project measures */
+    public static final String PROPERTY_MEASURES_KEY = "sonar.l10n.measures";
+
+    /** Default value for saving the analysis statistics as project measures */
+    public static final String PROPERTY_MEASURES_VALUE = "false";
+
+    /** Property for the size from which the files are memory-mapped */
+    public static final String PROPERTY_MMAP_THRESHOLD_KEY = "sonar.l10n.mmapThreshold";
+
+    /** Default value for the size from which the files are memory-mapped (1 MB) */
+    public static final String PROPERTY_MMAP_THRESHOLD_VALUE = "1048576";
+
+    /** Property for enabling the pipelined analysis */
+    public static final String PROPERTY_PIPELINE_KEY = "sonar.l10n.pipeline";
+
+    /** Default value for enabling the pipelined analysis */
+    public static final String PROPERTY_PIPELINE_VALUE = "false";
+
+    /** Property for enabling the snapshot of the bundle project */
+    public static final String PROPERTY_SNAPSHOT_KEY = "sonar.l10n.snapshot";
+
+    /** Default value for enabling the snapshot of the bundle project */
+    public static final String PROPERTY_SNAPSHOT_VALUE = "false";
+
     /** Property for source directories */
     public static final String PROPERTY_SOURCE_DIRECTORIES_KEY = "sonar.l10n.sourceDirectories";
 
     /** Default value for source directories */
     public static final String PROPERTY_SOURCE_DIRECTORIES_VALUE = "src/main/resources, src/main/java";
 
+    /** Property for the directories of the source files to look for the usages of the keys in */
+    public static final String PROPERTY_USAGE_DIRECTORIES_KEY = "sonar.l10n.usageDirectories";
+
+    /** Default value for the directories of the source files to look for the usages of the keys in */
+    public static final String PROPERTY_USAGE_DIRECTORIES_VALUE = "src/main/java, src/main/webapp";
+
+    /** Property for the extensions of the source files to look for the usages of the keys in */
+    public static final String PROPERTY_USAGE_SUFFIXES_KEY = "sonar.l10n.usageSuffixes";
+
+    /** Default value for the extensions of the source files to look for the usages of the keys in */
+    public static final String PROPERTY_USAGE_SUFFIXES_VALUE = "java, jsp, jspf, tag, js, html, xhtml";
+
+    /** Property for the number of threads */
+    public static final String PROPERTY_THREADS_KEY = "sonar.l10n.threads";
+
+    /** Default value for the number of threads */
+    public static final String PROPERTY_THREADS_VALUE = "1";
+
     /**
      * Get active rule
      * @param profile Sonar rules profile
@@ -64,35 +151,64 @@ public final class L10nConfiguration {
     }
 
     /**
-     * Get all flags for the active rules
+     * Get the active rules, resolved once for the whole analysis
      * @param profile Sonar rules profile
-     * @return Flags
-     */
-    public static Collection<Flag> getActiveRuleFlags(RulesProfile profile) {
-        Collection<Flag> flags = new ArrayList<Flag>();
-        for (L10nRule rule : L10nRuleRepository.RULES) {
-            ActiveRule activeRule = getActiveRule(profile, rule.getClass());
-            if (activeRule != null) {
-                flags.addAll(rule.getFlags());
-            }
+     * @return Active rules
+     */
+    public static L10nActiveRules getActiveRules(RulesProfile profile) {
+        L10nActiveRules activeRules = L10nActiveRules.resolve(profile, L10nRuleRepository.RULES);
+        LOG.info("Active {} rules: {}", L10nPlugin.KEY, activeRules);
+        return activeRules;
+    }
+
+    /**
+     * Get the cache file from the Sonar configuration
+     * @param project Sonar project
+     * @param settings Sonar settings
+     * @return Cache file (null if the cache is disabled)
+     */
+    public static File getCacheFile(Project project, Settings settings) {
+        File cacheFile = null;
+        boolean cache = settings.hasKey(PROPERTY_CACHE_KEY) ? settings.getBoolean(PROPERTY_CACHE_KEY) :
+                Boolean.parseBoolean(PROPERTY_CACHE_VALUE);
+        if (cache) {
+            cacheFile = new File(project.getFileSystem().getSonarWorkingDirectory(), CACHE_FILE);
         }
-        return flags;
+        LOG.info("{}: {}", PROPERTY_CACHE_KEY, cacheFile);
+        return cacheFile;
     }
 
     /**
-     * Get active rules from a list of localization rules
-     * @param profile Sonar rules profile
-     * @return Active rules from the list
-     */
-    public static Collection<ActiveRule> getActiveRules(RulesProfile profile) {
-        Collection<ActiveRule> activeRules = new ArrayList<ActiveRule>();
-        for (L10nRule rule : L10nRuleRepository.RULES) {
-            ActiveRule activeRule = getActiveRule(profile, rule.getClass());
-            if (activeRule != null) {
-                activeRules.add(activeRule);
+     * Get the changed files from the Sonar configuration: files listed (absolute, or relative to the project base
+     * directory), or files changed according to git
+     * @param project Sonar project
+     * @param settings Sonar settings
+     * @return Changed files (null for analysing all the files)
+     */
+    public static Collection<File> getChangedFiles(Project project, Settings settings) {
+        Collection<String> paths = L10nUtils.getCSV(settings, PROPERTY_CHANGED_FILES_KEY);
+        File basedir = project.getFileSystem().getBasedir();
+        Collection<File> changedFiles = null;
+        if (paths.size() == 1 && PROPERTY_CHANGED_FILES_VALUE_GIT.equalsIgnoreCase(paths.iterator().next())) {
+            String base = StringUtils.defaultIfBlank(settings.getString(PROPERTY_GIT_BASE_KEY),
+                    PROPERTY_GIT_BASE_VALUE).trim();
+            LOG.info("{}: {}", PROPERTY_GIT_BASE_KEY, base);
+            try {
+                changedFiles = GitUtils.getChangedFiles(basedir, base);
+            } catch (IOException e) {
+                LOG.warn(PROPERTY_CHANGED_FILES_KEY + ": cannot get the files changed from git, analysing all the " +
+                        "files", e);
+            }
+        } else if (!paths.isEmpty()) {
+            changedFiles = new ArrayList<File>(paths.size());
+            for (String path : paths) {
+                File changedFile = new File(path);
+                changedFiles.add(changedFile.isAbsolute() ? changedFile : new File(basedir, path));
             }
         }
-        return activeRules;
+        LOG.info("{}: {}", PROPERTY_CHANGED_FILES_KEY,
+                changedFiles != null ? changedFiles.size() + " files" : "none, analysing all the files");
+        return changedFiles;
     }
 
     /**
@@ -102,25 +218,39 @@ public final class L10nConfiguration {
      * @return Directories
      */
     public static Collection<File> getConfigurationDirectories(Project project, Settings settings) {
-        Collection<String> directoryPaths = L10nUtils.getCSV(settings, PROPERTY_SOURCE_DIRECTORIES_KEY);
+        return getConfigurationDirectories(project, settings, PROPERTY_SOURCE_DIRECTORIES_KEY,
+                PROPERTY_SOURCE_DIRECTORIES_VALUE);
+    }
+
+    /**
+     * Get the directories of a property from the Sonar configuration
+     * @param project Sonar project
+     * @param settings Sonar settings
+     * @param key Property key
+     * @param defaultValue Property default value
+     * @return Directories
+     */
+    private static Collection<File> getConfigurationDirectories(Project project, Settings settings, String key,
+            String defaultValue) {
+        Collection<String> directoryPaths = L10nUtils.getCSV(settings, key);
         Collection<File> directories = new HashSet<File>(directoryPaths.size());
         for (String directoryPath : directoryPaths) {
-            File directory = getConfigurationDirectory(project, directoryPath, true);
+            File directory = getConfigurationDirectory(project, directoryPath, key, true);
             if (directory != null) {
                 directories.add(directory);
             }
         }
         if (directories.isEmpty()) {
             LOG.info("{}: no directory (properly) configured, falling back to default directories '{}'",
-                    PROPERTY_SOURCE_DIRECTORIES_KEY, PROPERTY_SOURCE_DIRECTORIES_VALUE);
-            for (String directoryPath : CSV_SPLITTER.split(PROPERTY_SOURCE_DIRECTORIES_VALUE)) {
-                File directory = getConfigurationDirectory(project, directoryPath, false);
+                    key, defaultValue);
+            for (String directoryPath : CSV_SPLITTER.split(defaultValue)) {
+                File directory = getConfigurationDirectory(project, directoryPath, key, false);
                 if (directory != null) {
                     directories.add(directory);
                 }
             }
         }
-        LOG.info("{}: {}", PROPERTY_SOURCE_DIRECTORIES_KEY, directories);
+        LOG.info("{}: {}", key, directories);
         return Collections.unmodifiableCollection(directories);
     }
 
@@ -128,10 +258,11 @@ public final class L10nConfiguration {
      * Get the directory from its relative path
      * @param project Sonar project
      * @param directoryPath Directory relative path (nullable)
+     * @param key Property key (for logging)
      * @param log Log if the directory cannot be created?
      * @return Directory (nullable)
      */
-    private static File getConfigurationDirectory(Project project, String directoryPath, boolean log) {
+    private static File getConfigurationDirectory(Project project, String directoryPath, String key, boolean log) {
         String directoryPathTrimmed = StringUtils.trimToNull(directoryPath);
         File directory = null;
         if (directoryPathTrimmed != null) {
@@ -144,11 +275,11 @@ public final class L10nConfiguration {
                     directory = directoryTemp;
                 }
             } catch (SecurityException e) {
-                LOG.error(PROPERTY_SOURCE_DIRECTORIES_KEY + ": cannot execute or read directory '" +
+                LOG.error(key + ": cannot execute or read directory '" +
                         directoryPathTrimmed + '\'', e);
             }
             if (log && directory == null) {
-                LOG.error("{}: invalid directory '{}'", PROPERTY_SOURCE_DIRECTORIES_KEY, directoryPathTrimmed);
+                LOG.error("{}: invalid directory '{}'", key, directoryPathTrimmed);
             }
         }
         return directory;
@@ -157,19 +288,19 @@ public final class L10nConfiguration {
     /**
      * Get the locale from a String
      * @param locale String
+     * @param localeRegistry Registry of the locales
      * @return Locale wrapper (nullable)
      */
-    private static MutableObject<Locale> getConfigurationLocale(String locale) {
+    private static MutableObject<Locale> getConfigurationLocale(String locale, LocaleRegistry localeRegistry) {
         String localeStringTrimmed = StringUtils.trimToNull(locale);
         MutableObject<Locale> localeWrapper = null;
         if (localeStringTrimmed != null) {
             if (PROPERTY_LOCALES_VALUE_NULL.equalsIgnoreCase(localeStringTrimmed)) {
                 localeWrapper = new MutableObject<Locale>();
             } else {
-                try {
-                    localeWrapper = new MutableObject<Locale>(LocaleUtils.toLocale(localeStringTrimmed));
-                } catch (IllegalArgumentException ignored) {
-                    LOG.error("{}: cannot create locale '{}'", PROPERTY_LOCALES_KEY, locale);
+                Locale configurationLocale = localeRegistry.getLocale(localeStringTrimmed, PROPERTY_LOCALES_KEY);
+                if (configurationLocale != null) {
+                    localeWrapper = new MutableObject<Locale>(configurationLocale);
                 }
             }
         }
@@ -179,22 +310,24 @@ public final class L10nConfiguration {
     /**
      * Get the locales to check from the Sonar configuration
      * @param settings Sonar settings
-     * @param defaultLocales Default locales (if empty or not found in the configuration)
+     * @param localeRegistry Registry of the locales
+     * @param defaultLocales Default locales (if empty or not found in the configuration), only computed if needed
      * @return Locales to check
      */
-    public static Collection<Locale> getConfigurationLocales(Settings settings, Collection<Locale> defaultLocales) {
+    public static Collection<Locale> getConfigurationLocales(Settings settings, LocaleRegistry localeRegistry,
+            Supplier<? extends Collection<Locale>> defaultLocales) {
         Collection<String> localeStrings = L10nUtils.getCSV(settings, PROPERTY_LOCALES_KEY);
         Collection<Locale> locales = new HashSet<Locale>(localeStrings.size());
         for (String localeString : localeStrings) {
-            MutableObject<Locale> localeWrapper = getConfigurationLocale(localeString);
+            MutableObject<Locale> localeWrapper = getConfigurationLocale(localeString, localeRegistry);
             if (localeWrapper != null) {
                 locales.add(localeWrapper.getValue());
             }
         }
         if (locales.isEmpty()) {
-            locales = defaultLocales;
+            locales = defaultLocales.get();
             LOG.info("{}: {}, no locale (properly) configured, falling back to locales auto-discovered",
-                    PROPERTY_LOCALES_KEY, defaultLocales);
+                    PROPERTY_LOCALES_KEY, locales);
         } else {
             LOG.info("{}: {}", PROPERTY_LOCALES_KEY, locales);
         }
@@ -211,29 +344,172 @@ public final class L10nConfiguration {
     }
 
     /**
-     * Get the files to process
+     * Get the files to process, discovered while they are iterated
      * @param directories Directories
+     * @param settings Sonar settings
      * @return Files
      */
-    public static Collection<File> getFiles(Iterable<File> directories) {
-        Collection<File> files = new ArrayList<File>();
-        for (File directory : directories) {
-            files.addAll(FileUtils.listFiles(directory, new String[]{FILE_EXTENSION}, true));
+    public static Iterable<File> getFiles(Collection<File> directories, Settings settings) {
+        Collection<String> includedDirectories = L10nUtils.getCSV(settings, PROPERTY_INCLUDE_DIRECTORIES_KEY);
+        Collection<String> excludedDirectories = L10nUtils.getCSV(settings, PROPERTY_EXCLUDE_DIRECTORIES_KEY);
+        LOG.info("{}: {}", PROPERTY_INCLUDE_DIRECTORIES_KEY, includedDirectories);
+        LOG.info("{}: {}", PROPERTY_EXCLUDE_DIRECTORIES_KEY, excludedDirectories);
+        return new FileScanner(directories, FILE_EXTENSION, includedDirectories, excludedDirectories);
+    }
+
+    /**
+     * Get the source files to look for the usages of the keys in, discovered while they are iterated
+     * @param project Sonar project
+     * @param settings Sonar settings
+     * @return Source files (null if there is no source directory)
+     */
+    public static Iterable<File> getUsageFiles(Project project, Settings settings) {
+        Collection<File> directories = getConfigurationDirectories(project, settings, PROPERTY_USAGE_DIRECTORIES_KEY,
+                PROPERTY_USAGE_DIRECTORIES_VALUE);
+        if (directories.isEmpty()) {
+            return null;
+        }
+        Collection<String> suffixes = L10nUtils.getCSV(settings, PROPERTY_USAGE_SUFFIXES_KEY);
+        if (suffixes.isEmpty()) {
+            suffixes = new ArrayList<String>();
+            for (String suffix : CSV_SPLITTER.split(PROPERTY_USAGE_SUFFIXES_VALUE)) {
+                suffixes.add(suffix.trim());
+            }
         }
-        return files;
+        LOG.info("{}: {}", PROPERTY_USAGE_SUFFIXES_KEY, suffixes);
+        return new FileScanner(directories, suffixes, Collections.<String>emptyList(),
+                L10nUtils.getCSV(settings, PROPERTY_EXCLUDE_DIRECTORIES_KEY));
     }
 
     /**
-     * Is the localization rule active?
-     * @param profile Sonar rules profile
-     * @param ruleClass Localization rule class
-     * @return TRUE if the rule is active
+     * Get the maximum number of violations per resource from the Sonar configuration
+     * @param settings Sonar settings
+     * @return Maximum number of violations per resource (0 for no limit)
+     */
+    public static int getMaxViolationsPerResource(Settings settings) {
+        String maxString = StringUtils.trimToNull(settings.getString(PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_KEY));
+        int max = Integer.parseInt(PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_VALUE);
+        if (maxString != null) {
+            try {
+                max = Integer.parseInt(maxString);
+            } catch (NumberFormatException ignored) {
+                max = -1;
+            }
+            if (max < 0) {
+                LOG.error("{}: invalid maximum number of violations '{}', falling back to '{}'",
+                        new Object[]{PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_KEY, maxString,
+                                PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_VALUE});
+                max = Integer.parseInt(PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_VALUE);
+            }
+        }
+        LOG.info("{}: {}", PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_KEY, max);
+        return max;
+    }
+
+    /**
+     * Get the size from which the files are memory-mapped from the Sonar configuration
+     * @param settings Sonar settings
+     * @return Size in bytes (0 for never)
+     */
+    public static long getMmapThreshold(Settings settings) {
+        String thresholdString = StringUtils.trimToNull(settings.getString(PROPERTY_MMAP_THRESHOLD_KEY));
+        long threshold = Long.parseLong(PROPERTY_MMAP_THRESHOLD_VALUE);
+        if (thresholdString != null) {
+            try {
+                threshold = Long.parseLong(thresholdString);
+            } catch (NumberFormatException ignored) {
+                threshold = -1;
+            }
+            if (threshold < 0) {
+                LOG.error("{}: invalid size '{}', falling back to '{}'",
+                        new Object[]{PROPERTY_MMAP_THRESHOLD_KEY, thresholdString, PROPERTY_MMAP_THRESHOLD_VALUE});
+                threshold = Long.parseLong(PROPERTY_MMAP_THRESHOLD_VALUE);
+            }
+        }
+        LOG.info("{}: {}", PROPERTY_MMAP_THRESHOLD_KEY, threshold);
+        return threshold;
+    }
+
+    /**
+     * Get the number of threads from the Sonar configuration
+     * @param settings Sonar settings
+     * @return Number of threads (at least 1)
+     */
+    public static int getThreads(Settings settings) {
+        String threadsString = StringUtils.trimToNull(settings.getString(PROPERTY_THREADS_KEY));
+        int threads = Integer.parseInt(PROPERTY_THREADS_VALUE);
+        if (threadsString != null) {
+            try {
+                threads = Integer.parseInt(threadsString);
+            } catch (NumberFormatException ignored) {
+                threads = 0;
+            }
+            if (threads < 1) {
+                LOG.error("{}: invalid number of threads '{}', falling back to '{}'",
+                        new Object[]{PROPERTY_THREADS_KEY, threadsString, PROPERTY_THREADS_VALUE});
+                threads = Integer.parseInt(PROPERTY_THREADS_VALUE);
+            }
+        }
+        LOG.info("{}: {}", PROPERTY_THREADS_KEY, threads);
+        return threads;
+    }
+
+    /**
+     * Get the snapshot file from the Sonar configuration
+     * @param project Sonar project
+     * @param settings Sonar settings
+     * @return Snapshot file (null if the snapshot is disabled)
+     */
+    public static File getSnapshotFile(Project project, Settings settings) {
+        File snapshotFile = null;
+        if (settings.hasKey(PROPERTY_SNAPSHOT_KEY) ? settings.getBoolean(PROPERTY_SNAPSHOT_KEY) :
+                Boolean.parseBoolean(PROPERTY_SNAPSHOT_VALUE)) {
+            snapshotFile = new File(project.getFileSystem().getSonarWorkingDirectory(), SNAPSHOT_FILE);
+        }
+        LOG.info("{}: {}", PROPERTY_SNAPSHOT_KEY, snapshotFile);
+        return snapshotFile;
+    }
+
+    /**
+     * Are the analysis statistics to be saved as project measures, according to the Sonar configuration?
+     * @param settings Sonar settings
+     * @return TRUE if enabled
+     */
+    public static boolean isMeasures(Settings settings) {
+        boolean measures = settings.hasKey(PROPERTY_MEASURES_KEY) ? settings.getBoolean(PROPERTY_MEASURES_KEY) :
+                Boolean.parseBoolean(PROPERTY_MEASURES_VALUE);
+        LOG.info("{}: {}", PROPERTY_MEASURES_KEY, measures);
+        return measures;
+    }
+
+    /**
+     * Are the fallback locales followed in the Sonar configuration? If so, a key or a bundle is not missing for a
+     * locale if a fallback locale provides it (fr_CA -&gt; fr -&gt; null), as ResourceBundle resolves them.
+     * @param settings Sonar settings
+     * @return TRUE if followed
+     */
+    public static boolean isLocaleFallback(Settings settings) {
+        boolean localeFallback = settings.hasKey(PROPERTY_LOCALE_FALLBACK_KEY) ?
+                settings.getBoolean(PROPERTY_LOCALE_FALLBACK_KEY) :
+                Boolean.parseBoolean(PROPERTY_LOCALE_FALLBACK_VALUE);
+        LOG.info("{}: {}", PROPERTY_LOCALE_FALLBACK_KEY, localeFallback);
+        return localeFallback;
+    }
+
+    /**
+     * Is the pipelined analysis enabled in the Sonar configuration? If so, the files are discovered, parsed and
+     * checked concurrently, directory after directory, instead of building the whole bundle project first.
+     * @param settings Sonar settings
+     * @return TRUE if enabled
      */
-    public static boolean isActiveRule(RulesProfile profile, Class<? extends L10nRule> ruleClass) {
-        return profile.getActiveRule(L10nPlugin.KEY, L10nUtils.getRuleKey(ruleClass)) != null;
+    public static boolean isPipeline(Settings settings) {
+        boolean pipeline = settings.hasKey(PROPERTY_PIPELINE_KEY) ? settings.getBoolean(PROPERTY_PIPELINE_KEY) :
+                Boolean.parseBoolean(PROPERTY_PIPELINE_VALUE);
+        LOG.info("{}: {}", PROPERTY_PIPELINE_KEY, pipeline);
+        return pipeline;
     }
 
-    /** Prevents from instantiation */
+    /** Constructor (prevents from instantiation) */
     private L10nConfiguration() {
     }
 }
\ No newline at end of file
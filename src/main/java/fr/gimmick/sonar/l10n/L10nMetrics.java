@@ -0,0 +1,96 @@
+package fr.gimmick.sonar.l10n;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.measures.Metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Localization metrics: statistics of the analysis, saved as project measures when enabled
+ * @author Mickaël Tricot
+ */
+public final class L10nMetrics implements Metrics {
+
+    /** Metric: properties files processed */
+    public static final Metric FILES = createMetric("l10n_files", "L10n files", Metric.ValueType.INT,
+            "Properties files processed by the localization analysis");
+
+    /** Metric: bundles built */
+    public static final Metric BUNDLES = createMetric("l10n_bundles", "L10n bundles", Metric.ValueType.INT,
+            "Bundles built by the localization analysis");
+
+    /** Metric: keys parsed */
+    public static final Metric KEYS = createMetric("l10n_keys", "L10n keys", Metric.ValueType.INT,
+            "Keys parsed (not excluded) by the localization analysis");
+
+    /** Metric: bytes parsed */
+    public static final Metric BYTES = createMetric("l10n_bytes", "L10n bytes", Metric.ValueType.INT,
+            "Bytes of the properties files parsed by the localization analysis");
+
+    /** Metric: analysis time */
+    public static final Metric ANALYSIS_TIME = createMetric("l10n_analysis_time", "L10n analysis time",
+            Metric.ValueType.MILLISEC, "Time of the whole localization analysis");
+
+    /** Metric: discovery time */
+    public static final Metric DISCOVERY_TIME = createMetric("l10n_discovery_time", "L10n discovery time",
+            Metric.ValueType.MILLISEC, "Time spent discovering the properties files");
+
+    /** Metric: parsing time */
+    public static final Metric PARSING_TIME = createMetric("l10n_parsing_time", "L10n parsing time",
+            Metric.ValueType.MILLISEC, "Time spent parsing the properties files, cumulated over the threads");
+
+    /** Metric: build time */
+    public static final Metric BUILD_TIME = createMetric("l10n_build_time", "L10n build time",
+            Metric.ValueType.MILLISEC, "Wall time of the bundle project build");
+
+    /** Metric: violation saving time */
+    public static final Metric SAVING_TIME = createMetric("l10n_saving_time", "L10n saving time",
+            Metric.ValueType.MILLISEC, "Time spent saving the violations");
+
+    /** Counters saved as measures: metric -> statistics counter name */
+    private static final Map<Metric, String> COUNTERS = ImmutableMap.of(FILES, L10nStatistics.FILES,
+            BUNDLES, L10nStatistics.BUNDLES, KEYS, L10nStatistics.KEYS, BYTES, L10nStatistics.BYTES);
+
+    /** Times saved as measures: metric -> statistics time name */
+    private static final Map<Metric, String> TIMES = ImmutableMap.of(ANALYSIS_TIME, L10nStatistics.ANALYSIS,
+            DISCOVERY_TIME, L10nStatistics.DISCOVERY, PARSING_TIME, L10nStatistics.PARSING,
+            BUILD_TIME, L10nStatistics.BUILD, SAVING_TIME, L10nStatistics.SAVING);
+
+    /**
+     * Create a metric
+     * @param key Key
+     * @param name Name
+     * @param type Value type
+     * @param description Description
+     * @return Metric
+     */
+    private static Metric createMetric(String key, String name, Metric.ValueType type, String description) {
+        return new Metric.Builder(key, name, type).setDescription(description).setDomain(L10nPlugin.KEY)
+                .setQualitative(false).setDirection(Metric.DIRECTION_NONE).create();
+    }
+
+    /**
+     * Save the statistics as project measures
+     * @param statistics Analysis statistics
+     * @param context Sonar sensor context
+     */
+    public static void save(L10nStatistics statistics, SensorContext context) {
+        for (Entry<Metric, String> counter : COUNTERS.entrySet()) {
+            context.saveMeasure(counter.getKey(), (double) statistics.getCounter(counter.getValue()));
+        }
+        for (Entry<Metric, String> time : TIMES.entrySet()) {
+            context.saveMeasure(time.getKey(), (double) statistics.getTime(time.getValue()));
+        }
+    }
+
+    @Override
+    public List<Metric> getMetrics() {
+        return ImmutableList.<Metric>builder().addAll(COUNTERS.keySet()).addAll(TIMES.keySet()).build();
+    }
+}
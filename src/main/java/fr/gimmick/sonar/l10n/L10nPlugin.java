@@ -11,13 +11,63 @@ import java.util.List;
  * Localization plugin
  * @author Mickaël Tricot
  */
-@Properties({@Property(key = L10nConfiguration.PROPERTY_LOCALES_KEY, name = "Locales",
+@Properties({@Property(key = L10nConfiguration.PROPERTY_CACHE_KEY, name = "Cache",
+        description = "Cache the properties files from one analysis to another, in the Sonar working directory " +
+                "(not in pipelined mode)",
+        defaultValue = L10nConfiguration.PROPERTY_CACHE_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_CHANGED_FILES_KEY, name = "Changed files",
+                description = "Comma-separated list of the files changed, or 'git' to get them from the working " +
+                        "tree: only the bundles with a changed properties file are analysed (all if empty)"),
+        @Property(key = L10nConfiguration.PROPERTY_GIT_BASE_KEY, name = "Git base",
+                description = "Commit (branch, tag...) the changed files are taken from, with 'git' changed files",
+                defaultValue = L10nConfiguration.PROPERTY_GIT_BASE_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_LOCALES_KEY, name = "Locales",
         description = "Comma-separated list of locales (autodiscovered by default)"),
+        @Property(key = L10nConfiguration.PROPERTY_LOCALE_FALLBACK_KEY, name = "Locale fallback",
+                description = "A key or a bundle is not missing for a locale if a fallback locale provides it " +
+                        "(fr_CA, then fr, then the default file), as ResourceBundle resolves them",
+                defaultValue = L10nConfiguration.PROPERTY_LOCALE_FALLBACK_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_KEY,
+                name = "Maximum violations per resource",
+                description = "Maximum number of violations saved per rule and properties file (0 for no limit)",
+                defaultValue = L10nConfiguration.PROPERTY_MAX_VIOLATIONS_PER_RESOURCE_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_MEASURES_KEY, name = "Measures",
+                description = "Save the analysis statistics (files, keys, times) as project measures",
+                defaultValue = L10nConfiguration.PROPERTY_MEASURES_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_MMAP_THRESHOLD_KEY, name = "Memory-mapping threshold",
+                description = "Size (in bytes) from which the properties files are memory-mapped instead of being " +
+                        "read through a stream (0 for never)",
+                defaultValue = L10nConfiguration.PROPERTY_MMAP_THRESHOLD_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_PIPELINE_KEY, name = "Pipeline",
+                description = "Discover, parse and check the properties files concurrently, directory after " +
+                        "directory, instead of loading all the bundles before checking them",
+                defaultValue = L10nConfiguration.PROPERTY_PIPELINE_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_SNAPSHOT_KEY, name = "Snapshot",
+                description = "Save the whole bundle project from one analysis to another, in the Sonar working " +
+                        "directory, and load it back if no properties file changed (not in pipelined mode)",
+                defaultValue = L10nConfiguration.PROPERTY_SNAPSHOT_VALUE),
         @Property(key = L10nConfiguration.PROPERTY_SOURCE_DIRECTORIES_KEY, name = "Source directories",
                 description = "Comma-separated list of source directories.",
                 defaultValue = L10nConfiguration.PROPERTY_SOURCE_DIRECTORIES_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_USAGE_DIRECTORIES_KEY, name = "Usage directories",
+                description = "Comma-separated list of the directories of the source files to look for the usages " +
+                        "of the keys in",
+                defaultValue = L10nConfiguration.PROPERTY_USAGE_DIRECTORIES_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_USAGE_SUFFIXES_KEY, name = "Usage suffixes",
+                description = "Comma-separated list of the extensions of the source files to look for the usages " +
+                        "of the keys in",
+                defaultValue = L10nConfiguration.PROPERTY_USAGE_SUFFIXES_VALUE),
+        @Property(key = L10nConfiguration.PROPERTY_INCLUDE_DIRECTORIES_KEY, name = "Directories included",
+                description = "Comma-separated list of glob patterns of the directories to take the properties files " +
+                        "from, relative to the source directories (all if empty)"),
+        @Property(key = L10nConfiguration.PROPERTY_EXCLUDE_DIRECTORIES_KEY, name = "Directories excluded",
+                description = "Comma-separated list of glob patterns of the directories not to walk into, relative " +
+                        "to the source directories"),
         @Property(key = L10nConfiguration.PROPERTY_EXCLUDE_KEY_PREFIXES, name = "Key prefixes excluded",
-                description = "Comma-separated list of key prefixes excluded")})
+                description = "Comma-separated list of key prefixes excluded"),
+        @Property(key = L10nConfiguration.PROPERTY_THREADS_KEY, name = "Threads",
+                description = "Number of threads for processing the properties files and checking the rules",
+                defaultValue = L10nConfiguration.PROPERTY_THREADS_VALUE)})
 public final class L10nPlugin extends SonarPlugin {
 
     /** Plugin key */
@@ -25,7 +75,7 @@ public final class L10nPlugin extends SonarPlugin {
 
     @Override
     public List<?> getExtensions() {
-        return ImmutableList.of(L10nRuleRepository.class, L10nSensor.class);
+        return ImmutableList.of(L10nMetrics.class, L10nRuleRepository.class, L10nSensor.class);
     }
 
     @Override
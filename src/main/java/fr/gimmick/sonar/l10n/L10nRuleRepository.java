@@ -1,11 +1,15 @@
 package fr.gimmick.sonar.l10n;
 
 import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.rules.InconsistentPlaceholderRule;
 import fr.gimmick.sonar.l10n.rules.L10nRule;
 import fr.gimmick.sonar.l10n.rules.MissingBundleRule;
 import fr.gimmick.sonar.l10n.rules.MissingKeyRule;
 import fr.gimmick.sonar.l10n.rules.MissingValueRule;
+import fr.gimmick.sonar.l10n.rules.UndefinedKeyRule;
+import fr.gimmick.sonar.l10n.rules.UntranslatedValueRule;
 import fr.gimmick.sonar.l10n.rules.UnusedBundleRule;
+import fr.gimmick.sonar.l10n.rules.UnusedKeyRule;
 import org.sonar.api.resources.Java;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleRepository;
@@ -21,8 +25,9 @@ import java.util.List;
 public final class L10nRuleRepository extends RuleRepository {
 
     /** Localization rules */
-    public static final Collection<L10nRule> RULES = ImmutableList
-            .of(new MissingBundleRule(), new MissingKeyRule(), new MissingValueRule(), new UnusedBundleRule());
+    public static final Collection<L10nRule> RULES = ImmutableList.of(new InconsistentPlaceholderRule(),
+            new MissingBundleRule(), new MissingKeyRule(), new MissingValueRule(), new UndefinedKeyRule(),
+            new UntranslatedValueRule(), new UnusedBundleRule(), new UnusedKeyRule());
 
     /** Constructor */
     public L10nRuleRepository() {
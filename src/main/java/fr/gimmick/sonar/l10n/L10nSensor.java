@@ -1,10 +1,24 @@
 package fr.gimmick.sonar.l10n;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleCache;
 import fr.gimmick.sonar.l10n.model.BundleProject;
 import fr.gimmick.sonar.l10n.model.BundleProjectBuilder;
-import fr.gimmick.sonar.l10n.rules.L10nRule;
+import fr.gimmick.sonar.l10n.model.BundleSnapshot;
+import fr.gimmick.sonar.l10n.model.KeyUsageScanner;
+import fr.gimmick.sonar.l10n.model.KeyUsages;
 import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.rules.L10nRuleEngine;
+import fr.gimmick.sonar.l10n.rules.L10nRuleRunner;
+import fr.gimmick.sonar.l10n.utils.ChangedBundles;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nActiveRules;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.Sensor;
@@ -15,6 +29,7 @@ import org.sonar.api.resources.Project;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -45,24 +60,154 @@ public final class L10nSensor implements Sensor {
     @Override
     public void analyse(Project project, SensorContext context) {
 
-        if (L10nConfiguration.getActiveRules(profile).isEmpty()) {
+        L10nActiveRules activeRules = L10nConfiguration.getActiveRules(profile);
+        if (activeRules.isEmpty()) {
             LOG.info("No active {} rule", L10nPlugin.KEY);
             return;
         }
 
+        long start = System.nanoTime();
+        long allocated = L10nStatistics.getAllocatedBytes();
+        L10nStatistics statistics = new L10nStatistics();
         Collection<File> directories = L10nConfiguration.getConfigurationDirectories(project, settings);
-        Collection<File> files = L10nConfiguration.getFiles(directories);
-        Collection<String> excludedKeyPrefixes = L10nConfiguration.getExcludedKeyPrefixes(settings);
-        Collection<Flag> flags = L10nConfiguration.getActiveRuleFlags(profile);
-        BundleProject l10nProject = BundleProjectBuilder.build(files, excludedKeyPrefixes, flags);
-        Collection<Locale> locales = L10nConfiguration.getConfigurationLocales(settings, l10nProject.getLocales());
-        L10nContext configuration = new L10nContext(context, locales, profile, project);
-
-        for (L10nRule rule : L10nRuleRepository.RULES) {
-            if (L10nConfiguration.isActiveRule(profile, rule.getClass())) {
-                rule.checkViolations(l10nProject, configuration);
+        final Iterable<File> allFiles = statistics.timed(L10nStatistics.DISCOVERY,
+                L10nConfiguration.getFiles(directories, settings));
+        Collection<File> changedFiles = L10nConfiguration.getChangedFiles(project, settings);
+        ChangedBundles changedBundles = changedFiles != null ?
+                new ChangedBundles(changedFiles, L10nConfiguration.FILE_EXTENSION) : null;
+        if (changedBundles != null && changedBundles.isEmpty()) {
+            LOG.info("No {} file changed, nothing to analyse", L10nConfiguration.FILE_EXTENSION);
+            return;
+        }
+        Iterable<File> files = changedBundles != null ? changedBundles.filter(allFiles) : allFiles;
+        KeyPrefixMatcher excludedKeys = KeyPrefixMatcher.compile(L10nConfiguration.getExcludedKeyPrefixes(settings));
+        Collection<Flag> flags = activeRules.getFlags();
+        int threads = L10nConfiguration.getThreads(settings);
+        long mmapThreshold = L10nConfiguration.getMmapThreshold(settings);
+        int maxViolationsPerResource = L10nConfiguration.getMaxViolationsPerResource(settings);
+        // the cache and the snapshot are useless if the files are not read
+        boolean contentRead = BundleProjectBuilder.isContentRead(flags);
+        File cacheFile = contentRead ? L10nConfiguration.getCacheFile(project, settings) : null;
+        File snapshotFile = contentRead ? L10nConfiguration.getSnapshotFile(project, settings) : null;
+        boolean measures = L10nConfiguration.isMeasures(settings);
+        boolean localeFallback = L10nConfiguration.isLocaleFallback(settings);
+        boolean pipeline = L10nConfiguration.isPipeline(settings);
+        // the usages of the keys are only known once all the bundles are built
+        if (pipeline && flags.contains(Flag.UsesSources)) {
+            LOG.info("Pipeline not used, as some active rules need the usages of the keys in the source code");
+            pipeline = false;
+        }
+
+        BundleSnapshot snapshot = null;
+        List<File> snapshotFiles = null;
+        BundleProject l10nProject = null;
+        if (snapshotFile != null && (pipeline || changedBundles != null)) {
+            LOG.info("Snapshot not used in pipelined or incremental mode");
+        } else if (snapshotFile != null) {
+            snapshot = new BundleSnapshot(snapshotFile, flags, excludedKeys.getPrefixes());
+            snapshotFiles = ImmutableList.copyOf(files);
+            long snapshotStart = System.nanoTime();
+            l10nProject = snapshot.load(snapshotFiles);
+            statistics.addTime(L10nStatistics.SNAPSHOT, System.nanoTime() - snapshotStart);
+        }
+
+        // the cache is useless if the bundle project has been loaded from the snapshot, and it would retain the keys
+        // of all the files until the end of a pipelined analysis
+        if (cacheFile != null && pipeline) {
+            LOG.info("Cache not used in pipelined mode");
+        }
+        BundleCache cache = cacheFile != null && !pipeline && l10nProject == null ?
+                BundleCache.load(cacheFile, flags, excludedKeys.getPrefixes()) : null;
+        LocaleRegistry localeRegistry = new LocaleRegistry();
+        final BundleProjectBuilder builder = new BundleProjectBuilder(excludedKeys, flags, threads, mmapThreshold,
+                cache, localeRegistry, statistics);
+
+        if (pipeline) {
+            Collection<Locale> locales = L10nConfiguration.getConfigurationLocales(settings, localeRegistry,
+                    new Supplier<Collection<Locale>>() {
+                        @Override
+                        public Collection<Locale> get() {
+                            return builder.getLocales(allFiles);
+                        }
+                    });
+            L10nContext configuration = new L10nContext(context, locales, localeFallback, activeRules, project,
+                    maxViolationsPerResource, false, statistics, null);
+            final L10nRuleEngine engine = new L10nRuleEngine(activeRules.getRules(), configuration);
+            BundleProjectBuilder.Handler handler = new BundleProjectBuilder.Handler() {
+                @Override
+                public void bundle(Bundle bundle) {
+                    engine.visit(bundle);
+                }
+            };
+            builder.buildPipelined(files, handler);
+            engine.finish();
+            configuration.flush();
+        } else {
+            if (l10nProject == null) {
+                l10nProject = builder.build(snapshotFiles != null ? snapshotFiles : files);
+                if (snapshot != null) {
+                    long snapshotStart = System.nanoTime();
+                    snapshot.save(l10nProject);
+                    statistics.addTime(L10nStatistics.SNAPSHOT, System.nanoTime() - snapshotStart);
+                }
+            } else {
+                statistics.add(L10nStatistics.BUNDLES, l10nProject.getBundles().size());
+            }
+            // in incremental mode, the locales of the bundles not analysed count as well
+            Supplier<Collection<Locale>> defaultLocales = changedBundles == null ?
+                    Suppliers.ofInstance(l10nProject.getLocales()) : new Supplier<Collection<Locale>>() {
+                        @Override
+                        public Collection<Locale> get() {
+                            return builder.getLocales(allFiles);
+                        }
+                    };
+            Collection<Locale> locales = L10nConfiguration.getConfigurationLocales(settings, localeRegistry,
+                    defaultLocales);
+            KeyUsages keyUsages = null;
+            if (flags.contains(Flag.UsesSources)) {
+                keyUsages = getKeyUsages(project, l10nProject, excludedKeys, threads, mmapThreshold,
+                        changedBundles == null, statistics);
             }
+            L10nContext configuration = new L10nContext(context, locales, localeFallback, activeRules, project,
+                    maxViolationsPerResource, L10nRuleRunner.isParallel(activeRules.getRules(), threads), statistics,
+                    keyUsages);
+            L10nRuleRunner.run(activeRules.getRules(), l10nProject, configuration, threads);
+        }
+        if (cache != null) {
+            cache.save(changedBundles != null);
+        }
+
+        if (allocated >= 0) {
+            statistics.add(L10nStatistics.ALLOCATED_BYTES, L10nStatistics.getAllocatedBytes() - allocated);
+        }
+        statistics.addTime(L10nStatistics.ANALYSIS, System.nanoTime() - start);
+        statistics.log();
+        if (measures) {
+            L10nMetrics.save(statistics, context);
+        }
+    }
+
+    /**
+     * Scan the source files for the usages of the keys
+     * @param project Sonar project
+     * @param l10nProject Bundle project
+     * @param excludedKeys Matcher for the keys to exclude
+     * @param threads Number of threads for scanning the files
+     * @param mmapThreshold Size from which the files are memory-mapped (0 for never)
+     * @param undefinedKeys Look for undefined keys? (not in incremental mode: not all the bundles are built)
+     * @param statistics Analysis statistics
+     * @return Key usages (null if there is no source directory)
+     */
+    private KeyUsages getKeyUsages(Project project, BundleProject l10nProject, KeyPrefixMatcher excludedKeys,
+            int threads, long mmapThreshold, boolean undefinedKeys, L10nStatistics statistics) {
+        Iterable<File> sources = L10nConfiguration.getUsageFiles(project, settings);
+        if (sources == null) {
+            LOG.warn("{}: no source directory found, the usages of the keys are not checked",
+                    L10nConfiguration.PROPERTY_USAGE_DIRECTORIES_KEY);
+            return null;
         }
+        return new KeyUsageScanner(excludedKeys, threads, mmapThreshold, statistics).scan(l10nProject, sources,
+                undefinedKeys);
     }
 
     @Override
@@ -1,10 +1,10 @@
 package fr.gimmick.sonar.l10n.model;
 
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
 import org.apache.commons.lang3.ObjectUtils;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 
@@ -14,14 +14,20 @@ import java.util.Map;
  */
 public final class Bundle {
 
+    /** Effective key IDs with the fallback locales, computed on demand: locale -> key IDs */
+    private Map<Locale, KeyBitSet> fallbackKeyIds;
+
     /** Files: locale -> properties */
     private final Map<Locale, BundleFile> files;
 
     /** ID */
     private final BundleId id;
 
-    /** Keys for all the files */
-    private final Collection<String> keys;
+    /** Dictionary of the keys for all the files */
+    private final KeyDictionary keyDictionary;
+
+    /** IDs of the keys for all the files */
+    private final KeyBitSet keyIds;
 
     /**
      * Constructor
@@ -29,10 +35,21 @@ public final class Bundle {
      */
     public Bundle(BundleId id) {
         this.id = id;
-        keys = new HashSet<String>();
+        keyDictionary = new KeyDictionary();
+        keyIds = new KeyBitSet();
         files = new HashMap<Locale, BundleFile>();
     }
 
+    /**
+     * Add a file
+     * @param locale Locale (nullable)
+     * @param file File
+     */
+    void addFile(Locale locale, BundleFile file) {
+        files.put(locale, file);
+        keyIds.or(file.getKeyIds());
+    }
+
     @Override
     public boolean equals(Object obj) {
         return this == obj || obj instanceof Bundle && ObjectUtils.equals(getId(), ((Bundle) obj).getId());
@@ -44,6 +61,36 @@ public final class Bundle {
         return ObjectUtils.hashCode(getId());
     }
 
+    /**
+     * Get the effective key IDs of a locale, as resolved by ResourceBundle: the keys of its file and of the files of
+     * its fallback locales (fr_CA -&gt; fr -&gt; null). The key IDs are merged top-down, from the default bundle file,
+     * and memoized for each locale of the chain, so that the locales sharing a fallback locale merge it only once. A
+     * locale without file shares the key IDs of its fallback locale.
+     * @param locale Locale (nullable)
+     * @return Effective key IDs (not to be modified)
+     */
+    public synchronized KeyBitSet getFallbackKeyIds(Locale locale) {
+        if (fallbackKeyIds == null) {
+            fallbackKeyIds = new HashMap<Locale, KeyBitSet>();
+        }
+        KeyBitSet effectiveKeyIds = fallbackKeyIds.get(locale);
+        if (effectiveKeyIds == null) {
+            KeyBitSet fallback = locale != null ? getFallbackKeyIds(L10nUtils.getFallbackLocale(locale)) : null;
+            BundleFile file = files.get(locale);
+            if (file == null) {
+                effectiveKeyIds = fallback != null ? fallback : new KeyBitSet();
+            } else if (fallback == null || fallback.isEmpty()) {
+                effectiveKeyIds = file.getKeyIds();
+            } else {
+                effectiveKeyIds = new KeyBitSet();
+                effectiveKeyIds.or(fallback);
+                effectiveKeyIds.or(file.getKeyIds());
+            }
+            fallbackKeyIds.put(locale, effectiveKeyIds);
+        }
+        return effectiveKeyIds;
+    }
+
     /**
      * Files getter
      * @return Files
@@ -60,11 +107,27 @@ public final class Bundle {
         return id;
     }
 
+    /**
+     * Key dictionary getter
+     * @return Dictionary of the keys for all the files
+     */
+    public KeyDictionary getKeyDictionary() {
+        return keyDictionary;
+    }
+
+    /**
+     * Key IDs getter
+     * @return IDs of the keys for all the files
+     */
+    public KeyBitSet getKeyIds() {
+        return keyIds;
+    }
+
     /**
      * Keys getter
      * @return Keys
      */
     public Collection<String> getKeys() {
-        return keys;
+        return keyDictionary.getKeys();
     }
-}
\ No newline at end of file
+}
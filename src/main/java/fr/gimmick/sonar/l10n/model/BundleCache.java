@@ -0,0 +1,338 @@
+package fr.gimmick.sonar.l10n.model;
+
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Persistent cache of the bundle files, from one analysis to another. A file is only parsed again if its size, last
+ * modification date or content checksum changed. The whole cache is invalidated when the active rule flags or the
+ * excluded key prefixes change.
+ * @author Mickaël Tricot
+ */
+public final class BundleCache {
+
+    /** Configuration item prefix for an excluded key prefix */
+    private static final String CONFIGURATION_EXCLUDED_KEY_PREFIX = "excludedKeyPrefix:";
+
+    /** Configuration item prefix for an active rule flag */
+    private static final String CONFIGURATION_FLAG = "flag:";
+
+    /** Cache file format identifier */
+    private static final int FORMAT_MAGIC = 0x4C31306E;
+
+    /** Cache file format version */
+    private static final int FORMAT_VERSION = 3;
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(BundleCache.class);
+
+    /**
+     * Files modified less than this delay (in ms) before the cache was saved have their checksum verified, even if
+     * their size and last modification date did not change (file system timestamps granularity)
+     */
+    static final long RACY_DELAY = 2000L;
+
+    /** Active rule flags and excluded key prefixes the cache has been built with */
+    private final List<String> configuration;
+
+    /** Entries loaded from the cache file: path -> entry */
+    private final Map<String, CacheEntry> entries;
+
+    /** Cache file */
+    private final File file;
+
+    /** Entries for the current analysis: path -> entry */
+    private final ConcurrentMap<String, CacheEntry> newEntries;
+
+    /** Date when the cache file was saved */
+    private long timestamp;
+
+    /**
+     * Constructor
+     * @param file Cache file
+     * @param configuration Active rule flags and excluded key prefixes
+     */
+    private BundleCache(File file, List<String> configuration) {
+        this.file = file;
+        this.configuration = configuration;
+        entries = new ConcurrentHashMap<String, CacheEntry>();
+        newEntries = new ConcurrentHashMap<String, CacheEntry>();
+    }
+
+    /**
+     * Load the cache
+     * @param file Cache file (may not exist)
+     * @param flags Active rule flags
+     * @param excludedKeyPrefixes Excluded key prefixes
+     * @return Cache
+     */
+    public static BundleCache load(File file, Collection<Flag> flags, Collection<String> excludedKeyPrefixes) {
+        BundleCache cache = new BundleCache(file, getConfiguration(flags, excludedKeyPrefixes));
+        if (file.isFile()) {
+            DataInputStream input = null;
+            try {
+                input = new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file)));
+                cache.read(input);
+            } catch (IOException e) {
+                cache.entries.clear();
+                LOG.warn("Cannot read the L10n cache '" + file + "', ignoring it", e);
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+        LOG.info("L10n cache '{}' loaded with {} files", file, cache.entries.size());
+        return cache;
+    }
+
+    /**
+     * Get the configuration items a parsed file depends on
+     * @param flags Active rule flags
+     * @param excludedKeyPrefixes Excluded key prefixes
+     * @return Configuration items, sorted
+     */
+    static List<String> getConfiguration(Collection<Flag> flags, Collection<String> excludedKeyPrefixes) {
+        List<String> configuration = new ArrayList<String>();
+        for (Flag flag : new HashSet<Flag>(flags)) {
+            configuration.add(CONFIGURATION_FLAG + flag.name());
+        }
+        for (String excludedKeyPrefix : excludedKeyPrefixes) {
+            configuration.add(CONFIGURATION_EXCLUDED_KEY_PREFIX + excludedKeyPrefix);
+        }
+        Collections.sort(configuration);
+        return configuration;
+    }
+
+    /**
+     * Get the checksum of a file content
+     * @param file File
+     * @return Checksum
+     * @throws IOException Error while reading the file
+     */
+    private static long getChecksum(File file) throws IOException {
+        Checksum checksum = new CRC32();
+        InputStream is = null;
+        try {
+            is = new CheckedInputStream(FileUtils.openInputStream(file), checksum);
+            IOUtils.skip(is, Long.MAX_VALUE);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Get the parsed keys of a file from the cache
+     * @param file File
+     * @return Parsed keys (null if not cached or outdated)
+     */
+    ParsedKeys get(File file) {
+        String path = file.getAbsolutePath();
+        CacheEntry entry = entries.remove(path);
+        if (entry == null || entry.size != file.length()) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        if (entry.lastModified != lastModified || lastModified >= timestamp - RACY_DELAY) {
+            try {
+                if (entry.checksum != getChecksum(file)) {
+                    return null;
+                }
+            } catch (IOException e) {
+                LOG.debug("Cannot compute the checksum of file '{}'", file);
+                return null;
+            }
+            entry = new CacheEntry(entry.size, lastModified, entry.checksum, entry.parsedKeys);
+        }
+        newEntries.put(path, entry);
+        return entry.parsedKeys;
+    }
+
+    /**
+     * Put the parsed keys of a file in the cache
+     * @param file File
+     * @param size File size, before it has been parsed
+     * @param lastModified File last modification date, before it has been parsed
+     * @param checksum File content checksum
+     * @param parsedKeys Parsed keys
+     */
+    void put(File file, long size, long lastModified, long checksum, ParsedKeys parsedKeys) {
+        newEntries.put(file.getAbsolutePath(), new CacheEntry(size, lastModified, checksum, parsedKeys));
+    }
+
+    /**
+     * Read the cache
+     * @param input Input
+     * @throws IOException Error while reading the cache
+     */
+    private void read(DataInputStream input) throws IOException {
+        if (input.readInt() != FORMAT_MAGIC || input.readInt() != FORMAT_VERSION) {
+            LOG.info("L10n cache '{}' has an unknown format, ignoring it", file);
+            return;
+        }
+        timestamp = input.readLong();
+        int configurationSize = input.readInt();
+        List<String> cacheConfiguration = new ArrayList<String>(configurationSize);
+        for (int i = 0; i < configurationSize; i++) {
+            cacheConfiguration.add(input.readUTF());
+        }
+        if (!configuration.equals(cacheConfiguration)) {
+            LOG.info("L10n configuration changed, ignoring the cache '{}'", file);
+            return;
+        }
+        int entriesSize = input.readInt();
+        for (int i = 0; i < entriesSize; i++) {
+            String path = input.readUTF();
+            long size = input.readLong();
+            long lastModified = input.readLong();
+            long checksum = input.readLong();
+            boolean allKeysExcluded = input.readBoolean();
+            String[] keys = new String[input.readInt()];
+            KeyBitSet blankValues = new KeyBitSet();
+            String[] signatures = input.readBoolean() ? new String[keys.length] : null;
+            long[] valueHashes = input.readBoolean() ? new long[keys.length] : null;
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = input.readUTF();
+                if (input.readBoolean()) {
+                    blankValues.set(j);
+                }
+                if (signatures != null && input.readBoolean()) {
+                    signatures[j] = input.readUTF();
+                }
+                if (valueHashes != null) {
+                    valueHashes[j] = input.readLong();
+                }
+            }
+            entries.put(path, new CacheEntry(size, lastModified, checksum,
+                    new ParsedKeys(keys, blankValues, signatures, valueHashes, allKeysExcluded)));
+        }
+    }
+
+    /**
+     * Save the cache, with the files of the current analysis
+     * @param partial Has the current analysis processed only some of the files? If so, the files of the previous
+     * analyses are kept too, unless they were modified shortly before they were cached (they would not be checked
+     * against the date of the next save)
+     */
+    public void save(boolean partial) {
+        if (partial) {
+            for (Entry<String, CacheEntry> entry : entries.entrySet()) {
+                if (entry.getValue().lastModified < timestamp - RACY_DELAY) {
+                    newEntries.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            output = new DataOutputStream(new BufferedOutputStream(FileUtils.openOutputStream(tempFile)));
+            write(output);
+            output.close();
+            FileUtils.deleteQuietly(file);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot rename '" + tempFile + "' to '" + file + '\'');
+            }
+            LOG.info("L10n cache '{}' saved with {} files", file, newEntries.size());
+        } catch (IOException e) {
+            LOG.warn("Cannot save the L10n cache '" + file + '\'', e);
+            FileUtils.deleteQuietly(tempFile);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Write the cache
+     * @param output Output
+     * @throws IOException Error while writing the cache
+     */
+    private void write(DataOutputStream output) throws IOException {
+        output.writeInt(FORMAT_MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeLong(System.currentTimeMillis());
+        output.writeInt(configuration.size());
+        for (String configurationItem : configuration) {
+            output.writeUTF(configurationItem);
+        }
+        output.writeInt(newEntries.size());
+        for (Entry<String, CacheEntry> entry : newEntries.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeLong(entry.getValue().size);
+            output.writeLong(entry.getValue().lastModified);
+            output.writeLong(entry.getValue().checksum);
+            ParsedKeys parsedKeys = entry.getValue().parsedKeys;
+            output.writeBoolean(parsedKeys.isAllKeysExcluded());
+            output.writeInt(parsedKeys.getKeys().length);
+            String[] signatures = parsedKeys.getSignatures();
+            output.writeBoolean(signatures != null);
+            long[] valueHashes = parsedKeys.getValueHashes();
+            output.writeBoolean(valueHashes != null);
+            for (int i = 0; i < parsedKeys.getKeys().length; i++) {
+                output.writeUTF(parsedKeys.getKeys()[i]);
+                output.writeBoolean(parsedKeys.getBlankValues().get(i));
+                if (signatures != null) {
+                    output.writeBoolean(signatures[i] != null);
+                    if (signatures[i] != null) {
+                        output.writeUTF(signatures[i]);
+                    }
+                }
+                if (valueHashes != null) {
+                    output.writeLong(valueHashes[i]);
+                }
+            }
+        }
+    }
+
+    /** Cache entry: file state and related parsed keys */
+    private static final class CacheEntry {
+
+        /** Parsed keys */
+        private final ParsedKeys parsedKeys;
+
+        /** File content checksum */
+        private final long checksum;
+
+        /** File last modification date */
+        private final long lastModified;
+
+        /** File size */
+        private final long size;
+
+        /**
+         * Constructor
+         * @param size File size
+         * @param lastModified File last modification date
+         * @param checksum File content checksum
+         * @param parsedKeys Parsed keys
+         */
+        CacheEntry(long size, long lastModified, long checksum, ParsedKeys parsedKeys) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.parsedKeys = parsedKeys;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package fr.gimmick.sonar.l10n.model;
+
+import java.io.File;
+
+/**
+ * Represents a directory containing bundles, interned by a DirectoryTable: its path is stored once for all its
+ * bundles, and its hash code and path relative to the project are computed once
+ * @author Mickaël Tricot
+ */
+public final class BundleDirectory {
+
+    /** Hash code */
+    private final int hashCode;
+
+    /** Path */
+    private final String path;
+
+    /** Base directory path of the last relative path computed (nullable) */
+    private String basedirPath;
+
+    /** Last relative path computed (nullable) */
+    private String relativePath;
+
+    /**
+     * Constructor
+     * @param path Path
+     */
+    BundleDirectory(String path) {
+        this.path = path;
+        hashCode = path.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof BundleDirectory && hashCode == ((BundleDirectory) obj).hashCode &&
+                path.equals(((BundleDirectory) obj).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Path getter
+     * @return Path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the path relative to a base directory, computed once as long as the base directory does not change
+     * @param basedir Base directory (parent of this directory)
+     * @return Relative path
+     */
+    public synchronized String getRelativePath(File basedir) {
+        String currentBasedirPath = basedir.getPath();
+        if (!currentBasedirPath.equals(basedirPath)) {
+            relativePath = path.substring(currentBasedirPath.length() + 1);
+            basedirPath = currentBasedirPath;
+        }
+        return relativePath;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
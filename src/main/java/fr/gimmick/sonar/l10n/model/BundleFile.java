@@ -1,40 +1,105 @@
 package fr.gimmick.sonar.l10n.model;
 
-import java.util.Map;
-
-import com.google.common.collect.ImmutableMap;
-
 /**
- * Represents a bundle file
+ * Represents a bundle file: its keys are identified by their ID in the bundle key dictionary. The values are not
+ * retained: they are reduced while parsing to the per-key facts needed by the active rules (blank or not, placeholder
+ * signature, 64-bit hash).
  * @author Mickaël Tricot
  */
 public final class BundleFile {
 
-    /** If all the keys have been excluded: properties are empty, but they are actually not! */
+    /** If all the keys have been excluded: keys are empty, but they are actually not! */
     private final boolean allKeysExcluded;
 
-    /** Properties */
-    private final Map<String, String> properties;
+    /** IDs of the keys with a blank value (empty if the values are not processed) */
+    private final KeyBitSet blankValueKeyIds;
+
+    /** Name of the properties file, as discovered */
+    private final String fileName;
+
+    /** IDs of the keys */
+    private final KeyBitSet keyIds;
+
+    /** IDs of the keys with a placeholder in their value, sorted (empty if the placeholders are not processed) */
+    private final int[] signatureKeyIds;
+
+    /** Placeholder signatures of the values, in the order of the signature key IDs */
+    private final String[] signatures;
+
+    /** Hashes of the values, in the order of the key IDs (empty if the value hashes are not processed) */
+    private final long[] valueHashes;
 
     /**
      * Construction
-     * @param properties Properties
+     * @param fileName Name of the properties file, as discovered
+     * @param keyIds IDs of the keys
+     * @param blankValueKeyIds IDs of the keys with a blank value
+     * @param signatureKeyIds IDs of the keys with a placeholder in their value, sorted
+     * @param signatures Placeholder signatures of the values, in the order of the signature key IDs
+     * @param valueHashes Hashes of the values, in the order of the key IDs (empty if not processed)
      * @param allKeysExcluded All keys excluded?
      */
-    BundleFile(Map<String, String> properties, boolean allKeysExcluded) {
+    BundleFile(String fileName, KeyBitSet keyIds, KeyBitSet blankValueKeyIds, int[] signatureKeyIds,
+            String[] signatures, long[] valueHashes, boolean allKeysExcluded) {
         if (allKeysExcluded) {
-            assert properties.isEmpty();
+            assert keyIds.isEmpty();
         }
-        this.properties = ImmutableMap.copyOf(properties);
+        this.fileName = fileName;
+        this.keyIds = keyIds;
+        this.blankValueKeyIds = blankValueKeyIds;
+        this.signatureKeyIds = signatureKeyIds;
+        this.signatures = signatures;
+        this.valueHashes = valueHashes;
         this.allKeysExcluded = allKeysExcluded;
     }
 
     /**
-     * Properties getter
-     * @return Properties
+     * Blank value key IDs getter
+     * @return IDs of the keys with a blank value
+     */
+    public KeyBitSet getBlankValueKeyIds() {
+        return blankValueKeyIds;
+    }
+
+    /**
+     * File name getter
+     * @return Name of the properties file, as discovered (the locale suffix may differ from Locale.toString(), which
+     * gives the old ISO codes of Hebrew, Yiddish and Indonesian)
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Key IDs getter
+     * @return IDs of the keys
+     */
+    public KeyBitSet getKeyIds() {
+        return keyIds;
+    }
+
+    /**
+     * Signature key IDs getter
+     * @return IDs of the keys with a placeholder in their value, sorted
+     */
+    public int[] getSignatureKeyIds() {
+        return signatureKeyIds;
+    }
+
+    /**
+     * Signatures getter
+     * @return Placeholder signatures of the values, in the order of the signature key IDs
+     */
+    public String[] getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Value hashes getter
+     * @return Hashes of the values, in the order of the key IDs (empty if the value hashes are not processed)
      */
-    public Map<String, String> getProperties() {
-        return properties;
+    public long[] getValueHashes() {
+        return valueHashes;
     }
 
     /**
@@ -44,4 +109,4 @@ public final class BundleFile {
     public boolean isAllKeysExcluded() {
         return allKeysExcluded;
     }
-}
\ No newline at end of file
+}
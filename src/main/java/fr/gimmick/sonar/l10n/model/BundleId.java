@@ -1,7 +1,5 @@
 package fr.gimmick.sonar.l10n.model;
 
-import org.apache.commons.lang3.ObjectUtils;
-
 /**
  * Represents a bundle identifier: directory + name. The related file is directory/name.properties or
  * directory/name_locale.properties
@@ -10,39 +8,47 @@ import org.apache.commons.lang3.ObjectUtils;
 public final class BundleId {
 
     /** Directory */
-    private final String directory;
+    private final BundleDirectory directory;
+
+    /** Hash code */
+    private final int hashCode;
 
     /** Name */
     private final String name;
 
     /**
      * Constructor
-     * @param directory Directory
+     * @param directory Directory (interned)
      * @param name Name
      */
-    BundleId(String directory, String name) {
+    BundleId(BundleDirectory directory, String name) {
         this.directory = directory;
         this.name = name;
+        hashCode = 31 * directory.hashCode() + name.hashCode();
     }
 
     @Override
     public boolean equals(Object obj) {
-        return this == obj || obj instanceof BundleId && ObjectUtils.equals(getName(), ((BundleId) obj).getName()) &&
-                ObjectUtils.equals(getDirectory(), ((BundleId) obj).getDirectory());
-
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BundleId)) {
+            return false;
+        }
+        BundleId id = (BundleId) obj;
+        return hashCode == id.hashCode && name.equals(id.name) && directory.equals(id.directory);
     }
 
     @Override
     public int hashCode() {
-        return ObjectUtils.hashCode(getClass()) *
-                (ObjectUtils.hashCode(getDirectory()) + ObjectUtils.hashCode(getName()));
+        return hashCode;
     }
 
     /**
      * Directory getter
      * @return Directory
      */
-    public String getDirectory() {
+    public BundleDirectory getDirectory() {
         return directory;
     }
 
@@ -53,4 +59,4 @@ public final class BundleId {
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,22 @@
 package fr.gimmick.sonar.l10n.model;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.BufferUtils;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import fr.gimmick.sonar.l10n.utils.PlaceholderParser;
+import fr.gimmick.sonar.l10n.utils.PropertiesParser;
+import fr.gimmick.sonar.l10n.utils.ValueHasher;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.mutable.Mutable;
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,78 +24,444 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Properties;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 
 /**
- * Builder for the BundleProject
+ * Builder for the BundleProject, configured once per analysis. The bundles are built on the calling thread only, and
+ * share a table of directories. If no active rule uses the keys or values, the files are not read: the bundles are
+ * built from the file names only.
  * @author Mickaël Tricot
  */
 public final class BundleProjectBuilder {
 
-    /** Bundle filename splitter */
-    private static final Pattern FILENAME_SPLITTER =
-            Pattern.compile(L10nUtils.FILENAME_NAME_LOCALE_SEPARATOR.toString());
+    /** Handler for the bundles built in pipelined mode */
+    public interface Handler {
+
+        /**
+         * Handle a bundle, once all its files have been parsed
+         * @param bundle Bundle
+         */
+        void bundle(Bundle bundle);
+    }
 
     /** Logger */
     private static final Logger LOG = LoggerFactory.getLogger(BundleProjectBuilder.class);
 
+    /** Delay (in ms) between two checks of the file discovery state, while waiting for files to be discovered */
+    private static final long DISCOVERY_POLL_DELAY = 100L;
+
+    /** Name format for the thread discovering the files */
+    private static final String DISCOVERY_THREAD_NAME_FORMAT = "l10n-file-discovery-%d";
+
+    /**
+     * Maximum number of files submitted for processing but not collected yet (parallel and pipelined modes, key usage
+     * scan)
+     */
+    static final int MAX_PENDING_FILES = 256;
+
+    /** Name format for the threads processing the files */
+    private static final String THREAD_NAME_FORMAT = "l10n-bundle-builder-%d";
+
+    /** Cache of the bundle files (nullable) */
+    private final BundleCache cache;
+
+    /** Are the files read? (otherwise the bundles are built from the file names only) */
+    private final boolean contentRead;
+
+    /** Directories of the bundles built */
+    private final DirectoryTable directories;
+
+    /** Matcher for the keys to exclude */
+    private final KeyPrefixMatcher excludedKeys;
+
+    /** Registry of the locales */
+    private final LocaleRegistry localeRegistry;
+
+    /** Active rule flags */
+    private final Collection<Flag> flags;
+
+    /** Size from which the files are memory-mapped (0 for never) */
+    private final long mmapThreshold;
+
+    /** Are the placeholder signatures of the values computed? */
+    private final boolean placeholdersRead;
+
+    /** Placeholder signatures of the values, shared by all the files: signature -> canonical instance */
+    private final ConcurrentMap<String, String> signatures;
+
+    /** Are the hashes of the values computed? */
+    private final boolean valueHashesRead;
+
+    /** Analysis statistics */
+    private final L10nStatistics statistics;
+
+    /** Statistics: files processed, resolved once for the parsing threads */
+    private final AtomicLong filesCounter;
+
+    /** Statistics: files retrieved from the cache */
+    private final AtomicLong cachedFilesCounter;
+
+    /** Statistics: bytes of the files parsed */
+    private final AtomicLong bytesCounter;
+
+    /** Statistics: keys parsed */
+    private final AtomicLong keysCounter;
+
+    /** Statistics: keys excluded */
+    private final AtomicLong excludedKeysCounter;
+
+    /** Statistics: parsing time (in ns) */
+    private final AtomicLong parsingTime;
+
+    /** Number of threads for processing the files */
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param excludedKeys Matcher for the keys to exclude
+     * @param flags Active rule flags
+     * @param threads Number of threads for processing the files
+     * @param mmapThreshold Size from which the files are memory-mapped (0 for never)
+     * @param cache Cache of the bundle files (nullable)
+     * @param localeRegistry Registry of the locales
+     * @param statistics Analysis statistics
+     */
+    public BundleProjectBuilder(KeyPrefixMatcher excludedKeys, Collection<Flag> flags, int threads,
+            long mmapThreshold, BundleCache cache, LocaleRegistry localeRegistry, L10nStatistics statistics) {
+        this.excludedKeys = excludedKeys;
+        this.flags = flags;
+        this.threads = threads;
+        this.mmapThreshold = mmapThreshold;
+        this.cache = cache;
+        this.localeRegistry = localeRegistry;
+        this.statistics = statistics;
+        filesCounter = statistics.counter(L10nStatistics.FILES);
+        cachedFilesCounter = statistics.counter(L10nStatistics.CACHED_FILES);
+        bytesCounter = statistics.counter(L10nStatistics.BYTES);
+        keysCounter = statistics.counter(L10nStatistics.KEYS);
+        excludedKeysCounter = statistics.counter(L10nStatistics.EXCLUDED_KEYS);
+        parsingTime = statistics.time(L10nStatistics.PARSING);
+        directories = new DirectoryTable();
+        contentRead = isContentRead(flags);
+        placeholdersRead = flags.contains(Flag.UsesPlaceholders);
+        signatures = new ConcurrentHashMap<String, String>();
+        valueHashesRead = flags.contains(Flag.UsesValueHashes);
+        if (!contentRead) {
+            LOG.info("Bundles built from the file names only, without reading the files");
+        }
+    }
+
+    /**
+     * Do the active rules need the content of the files? Otherwise the files are listed but not read
+     * @param flags Active rule flags
+     * @return TRUE if the files are read
+     */
+    public static boolean isContentRead(Collection<Flag> flags) {
+        return flags.contains(Flag.UsesKeys) || flags.contains(Flag.UsesValues) ||
+                flags.contains(Flag.UsesPlaceholders) || flags.contains(Flag.UsesValueHashes);
+    }
+
+    /**
+     * Get the canonical instance of a placeholder signature
+     * @param signature Signature
+     * @return Canonical signature
+     */
+    private String internSignature(String signature) {
+        String canonical = signatures.putIfAbsent(signature, signature);
+        return canonical != null ? canonical : signature;
+    }
+
     /**
      * Build the bundle project
      * @param files Files to process
-     * @param excludedKeyPrefixes Key prefixes to exclude
-     * @param flags Active rule flags
      * @return Bundle project
      */
-    public static BundleProject build(Iterable<File> files, Collection<String> excludedKeyPrefixes,
-            Collection<Flag> flags) {
+    public BundleProject build(Iterable<File> files) {
+        long start = System.nanoTime();
         BundleProject bundleProject = new BundleProject();
-        for (File file : files) {
-            LOG.debug("Processing file '{}'", file);
-            Bundle bundle = buildBundle(bundleProject, file, excludedKeyPrefixes, flags);
-            if (bundle == null) {
-                LOG.warn("File '{}' ignored", file);
+        if (threads > 1 && contentRead) {
+            buildParallel(bundleProject, files);
+        } else {
+            long allocated = L10nStatistics.getAllocatedBytes();
+            for (File file : files) {
+                LOG.debug("Processing file '{}'", file);
+                buildBundle(bundleProject, file, parseFile(file));
             }
+            addParsingAllocatedBytes(allocated < 0 ? -1 : L10nStatistics.getAllocatedBytes() - allocated);
         }
+        statistics.add(L10nStatistics.BUNDLES, bundleProject.getBundles().size());
+        statistics.addTime(L10nStatistics.BUILD, System.nanoTime() - start);
         return bundleProject;
     }
 
     /**
-     * Build a bundle
+     * Build the bundle project, parsing the files concurrently. The bundles are merged in the order of the files, so
+     * that the result is identical to the sequential build, as soon as they are parsed: only the files in flight
+     * (bounded) are kept in memory.
      * @param bundleProject Bundle project
-     * @param file File to process
-     * @param excludedKeyPrefixes Key prefixes to exclude
-     * @param flags Active rule flags
-     * @return Bundle
+     * @param files Files to process
+     */
+    private void buildParallel(BundleProject bundleProject, Iterable<File> files) {
+        TrackedThreadFactory threadFactory = new TrackedThreadFactory(THREAD_NAME_FORMAT);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+        try {
+            Deque<PendingFile> pendingFiles = new ArrayDeque<PendingFile>();
+            for (final File file : files) {
+                pendingFiles.add(new PendingFile(file, executor.submit(new Callable<ParsedFile>() {
+                    @Override
+                    public ParsedFile call() {
+                        LOG.debug("Processing file '{}'", file);
+                        return parseFile(file);
+                    }
+                })));
+                // merge the parsed heads, waiting only when too many files are in flight
+                while (!pendingFiles.isEmpty() &&
+                        (pendingFiles.size() >= MAX_PENDING_FILES || pendingFiles.peek().parsedFile.isDone())) {
+                    PendingFile pendingFile = pendingFiles.poll();
+                    buildBundle(bundleProject, pendingFile.file, getParsedFile(pendingFile.parsedFile));
+                }
+            }
+            for (PendingFile pendingFile : pendingFiles) {
+                buildBundle(bundleProject, pendingFile.file, getParsedFile(pendingFile.parsedFile));
+            }
+        } finally {
+            // measured before the shutdown, while the threads are alive
+            addParsingAllocatedBytes(threadFactory.getAllocatedBytes());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Build the bundles in a pipeline: the files are discovered on a dedicated thread and parsed concurrently, while
+     * the bundles of each directory are built and handed over as soon as the directory has been fully discovered. Only
+     * the files in flight (bounded) and the bundles of the current directory are kept in memory.
+     * @param files Files to process (the files of a directory must be consecutive, as given by a FileScanner)
+     * @param handler Handler for the bundles, called on the calling thread
      */
-    private static Bundle buildBundle(BundleProject bundleProject, File file, Collection<String> excludedKeyPrefixes,
-            Collection<Flag> flags) {
+    public void buildPipelined(final Iterable<File> files, Handler handler) {
+        long start = System.nanoTime();
+        TrackedThreadFactory parserThreadFactory = new TrackedThreadFactory(THREAD_NAME_FORMAT);
+        TrackedThreadFactory discoveryThreadFactory = new TrackedThreadFactory(DISCOVERY_THREAD_NAME_FORMAT);
+        final ExecutorService parsers = Executors.newFixedThreadPool(threads, parserThreadFactory);
+        ExecutorService discovery = Executors.newSingleThreadExecutor(discoveryThreadFactory);
+        try {
+            final BlockingQueue<PendingFile> queue = new ArrayBlockingQueue<PendingFile>(MAX_PENDING_FILES);
+            Future<?> discovered = discovery.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    for (final File file : files) {
+                        // the file names are processed right away, not worth a task
+                        queue.put(new PendingFile(file, !contentRead ? Futures.immediateFuture(parseFile(file)) :
+                                parsers.submit(new Callable<ParsedFile>() {
+                                    @Override
+                                    public ParsedFile call() {
+                                        LOG.debug("Processing file '{}'", file);
+                                        return parseFile(file);
+                                    }
+                                })));
+                    }
+                    queue.put(PendingFile.END);
+                    return null;
+                }
+            });
+            Set<String> builtDirectories = new HashSet<String>();
+            BundleProject directoryProject = new BundleProject();
+            String directory = null;
+            for (PendingFile pendingFile = takePendingFile(queue, discovered); pendingFile != PendingFile.END;
+                    pendingFile = takePendingFile(queue, discovered)) {
+                String parent = pendingFile.file.getParent();
+                if (!directoryProject.getBundles().isEmpty() && !StringUtils.equals(directory, parent)) {
+                    handle(directoryProject, handler);
+                    directoryProject = new BundleProject();
+                }
+                if (!StringUtils.equals(directory, parent) && !builtDirectories.add(parent)) {
+                    LOG.warn("Directory '{}' discovered again, its bundles may be split", parent);
+                }
+                directory = parent;
+                buildBundle(directoryProject, pendingFile.file, getParsedFile(pendingFile.parsedFile));
+            }
+            handle(directoryProject, handler);
+        } finally {
+            long discoveryAllocated = discoveryThreadFactory.getAllocatedBytes();
+            long parsersAllocated = parserThreadFactory.getAllocatedBytes();
+            addParsingAllocatedBytes(discoveryAllocated < 0 || parsersAllocated < 0 ? -1 :
+                    discoveryAllocated + parsersAllocated);
+            discovery.shutdownNow();
+            parsers.shutdownNow();
+            statistics.addTime(L10nStatistics.BUILD, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the locales of the bundle files from their names only, without reading them
+     * @param files Files
+     * @return Locales
+     */
+    public Collection<Locale> getLocales(Iterable<File> files) {
+        Collection<Locale> locales = new HashSet<Locale>();
+        for (File file : files) {
+            String fileBaseName = FilenameUtils.getBaseName(file.getName());
+            String[] fileNameSplit = StringUtils.isEmpty(fileBaseName) ? null : L10nUtils.splitFileName(fileBaseName);
+            if (fileNameSplit == null || fileNameSplit.length < 2) {
+                locales.add(null);
+            } else {
+                Locale locale = localeRegistry.getLocale(fileNameSplit[1], file);
+                if (locale != null) {
+                    locales.add(locale);
+                }
+            }
+        }
+        LOG.info("Locales discovered from the file names: {}", locales);
+        return locales;
+    }
+
+    /**
+     * Add to the bytes allocated by the parsing threads
+     * @param allocated Allocated bytes (-1 if not supported by the JVM)
+     */
+    private void addParsingAllocatedBytes(long allocated) {
+        if (allocated >= 0) {
+            statistics.add(L10nStatistics.PARSING_ALLOCATED_BYTES, allocated);
+        }
+    }
+
+    /**
+     * Hand the bundles of a directory over to the handler
+     * @param directoryProject Bundles of a directory
+     * @param handler Handler
+     */
+    private void handle(BundleProject directoryProject, Handler handler) {
+        statistics.add(L10nStatistics.BUNDLES, directoryProject.getBundles().size());
+        for (Bundle bundle : directoryProject.getBundles().values()) {
+            handler.bundle(bundle);
+        }
+    }
+
+    /**
+     * Wait for the next discovered file
+     * @param queue Queue of the discovered files
+     * @param discovered File discovery future
+     * @return Discovered file, or the end marker
+     */
+    private static PendingFile takePendingFile(BlockingQueue<PendingFile> queue, Future<?> discovered) {
+        try {
+            PendingFile pendingFile = queue.poll(DISCOVERY_POLL_DELAY, TimeUnit.MILLISECONDS);
+            while (pendingFile == null) {
+                if (discovered.isDone()) {
+                    // the end marker is queued, unless the discovery failed
+                    discovered.get();
+                }
+                pendingFile = queue.poll(DISCOVERY_POLL_DELAY, TimeUnit.MILLISECONDS);
+            }
+            return pendingFile;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while discovering the files", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Error while discovering the files", e.getCause());
+        }
+    }
+
+    /**
+     * Build a bundle from a parsed file
+     * @param bundleProject Bundle project
+     * @param file File
+     * @param parsedFile Parsed file (nullable)
+     * @return Bundle (nullable)
+     */
+    private Bundle buildBundle(BundleProject bundleProject, File file, ParsedFile parsedFile) {
         Bundle bundle = null;
+        if (parsedFile != null) {
+            bundle = buildBundle(bundleProject, file, parsedFile.name, parsedFile.localeWrapper,
+                    parsedFile.parsedKeys);
+        }
+        if (bundle == null) {
+            LOG.warn("File '{}' ignored", file);
+        }
+        return bundle;
+    }
+
+    /**
+     * Wait for a file to be parsed
+     * @param future Parsed file future
+     * @return Parsed file (nullable)
+     */
+    private static ParsedFile getParsedFile(Future<ParsedFile> future) {
         try {
-            if (file != null && file.exists() && file.isFile() && file.canRead()) {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the bundle project", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Error while building the bundle project", e.getCause());
+        }
+    }
+
+    /**
+     * Parse a file. This does not modify any shared state (but the statistics), so it can be run concurrently. If the
+     * files are not read, the file is not even checked (it comes from a directory listing).
+     * @param file File to process
+     * @return Parsed file (nullable)
+     */
+    private ParsedFile parseFile(File file) {
+        long start = System.nanoTime();
+        ParsedFile parsedFile = null;
+        try {
+            if (file != null && (!contentRead || file.exists() && file.isFile() && file.canRead())) {
 
                 String[] fileNameSplit = getFileNameSplit(file);
                 String name = getBundleName(file, fileNameSplit);
                 MutableObject<Locale> localeWrapper = getBundleLocale(file, fileNameSplit);
 
-                MutableObject<Map<String, String>> propertiesWrapper = null;
-                if (name != null && localeWrapper != null &&
-                        (flags.contains(Flag.UsesValues) || flags.contains(Flag.UsesKeys))) {
-                    propertiesWrapper = getBundleProperties(file, flags);
+                ParsedKeys parsedKeys = null;
+                if (name != null && localeWrapper != null && !contentRead) {
+                    parsedKeys = ParsedKeys.NONE;
+                } else if (name != null && localeWrapper != null) {
+                    parsedKeys = cache != null ? cache.get(file) : null;
+                    if (parsedKeys == null) {
+                        parsedKeys = getBundleKeys(file);
+                    } else {
+                        LOG.debug("File '{}' retrieved from the cache", file);
+                        cachedFilesCounter.incrementAndGet();
+                    }
                 }
-                boolean allKeysExcluded = excludeKeys(propertiesWrapper, excludedKeyPrefixes);
 
-                bundle = buildBundle(bundleProject, file, name, localeWrapper, propertiesWrapper, allKeysExcluded);
+                parsedFile = new ParsedFile(name, localeWrapper, parsedKeys);
             }
         } catch (SecurityException e) {
             LOG.error(e.getMessage(), e);
         }
-        return bundle;
+        filesCounter.incrementAndGet();
+        parsingTime.addAndGet(System.nanoTime() - start);
+        return parsedFile;
     }
 
     /**
@@ -96,85 +470,40 @@ public final class BundleProjectBuilder {
      * @param file File
      * @param name Bundle name (nullable)
      * @param localeWrapper Bundle locale wrapper (nullable)
-     * @param propertiesWrapper Bundle properties wrapper (nullable)
-     * @param allKeysExcluded If all keys are excluded
+     * @param parsedKeys Bundle parsed keys (nullable)
      * @return Bundle
      */
-    private static Bundle buildBundle(BundleProject bundleProject, File file, String name,
-            MutableObject<Locale> localeWrapper, MutableObject<Map<String, String>> propertiesWrapper,
-            boolean allKeysExcluded) {
+    private Bundle buildBundle(BundleProject bundleProject, File file, String name,
+            MutableObject<Locale> localeWrapper, ParsedKeys parsedKeys) {
         Bundle bundle = null;
-        if (name != null && localeWrapper != null && propertiesWrapper != null) {
+        if (name != null && localeWrapper != null && parsedKeys != null) {
             bundleProject.getLocales().add(localeWrapper.getValue());
-            BundleId id = new BundleId(file.getParent(), name);
+            BundleId id = new BundleId(directories.intern(file.getParent()), name);
             bundle = bundleProject.getBundles().get(id);
             if (bundle == null) {
                 bundle = new Bundle(id);
                 bundleProject.getBundles().put(id, bundle);
             }
-            bundle.getFiles()
-                    .put(localeWrapper.getValue(), new BundleFile(propertiesWrapper.getValue(), allKeysExcluded));
-            bundle.getKeys().addAll(propertiesWrapper.getValue().keySet());
-            LOG.debug("Bundle created with name '{}', locale '{}', properties {} for file '{}'",
-                    new Object[]{name, localeWrapper.getValue(), propertiesWrapper.getValue(), file});
+            bundle.addFile(localeWrapper.getValue(), parsedKeys.toBundleFile(file.getName(),
+                    bundle.getKeyDictionary()));
+            LOG.debug("Bundle created with name '{}', locale '{}', keys {} for file '{}'",
+                    new Object[]{name, localeWrapper.getValue(), parsedKeys.getKeys().length, file});
         }
         return bundle;
     }
 
-    /**
-     * Remove excluded keys
-     * @param propertiesWrapper Properties wrapper
-     * @param excludedKeyPrefixes Excluded key prefixes
-     * @return TRUE if all the properties have been excluded
-     */
-    private static boolean excludeKeys(Mutable<Map<String, String>> propertiesWrapper,
-            Collection<String> excludedKeyPrefixes) {
-        boolean excludeKeys = false;
-        if (propertiesWrapper != null && propertiesWrapper.getValue() != null &&
-                !propertiesWrapper.getValue().isEmpty() && !excludedKeyPrefixes.isEmpty()) {
-            excludeKeys(propertiesWrapper.getValue().entrySet().iterator(), excludedKeyPrefixes);
-            if (propertiesWrapper.getValue().isEmpty()) {
-                excludeKeys = true;
-            }
-        }
-        return excludeKeys;
-    }
-
-    /**
-     * Remove excluded keys
-     * @param propertiesIterator Properties iterator
-     * @param excludedKeyPrefixes Excluded key prefixes
-     */
-    private static void excludeKeys(Iterator<Entry<String, String>> propertiesIterator,
-            Collection<String> excludedKeyPrefixes) {
-        while (propertiesIterator != null && propertiesIterator.hasNext()) {
-            Entry<String, String> property = propertiesIterator.next();
-            if (property != null && property.getKey() != null) {
-                Iterator<String> iExcludeKeyPrefixes = excludedKeyPrefixes.iterator();
-                boolean notRemoved = true;
-                while (notRemoved && iExcludeKeyPrefixes.hasNext()) {
-                    if (property.getKey().startsWith(iExcludeKeyPrefixes.next())) {
-                        propertiesIterator.remove();
-                        notRemoved = false;
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * Extract the bundle locale from the file(name)
      * @param file File
      * @param fileNameSplit Filename split (nullable)
      * @return Locale wrapper (nullable)
      */
-    private static MutableObject<Locale> getBundleLocale(File file, String... fileNameSplit) {
+    private MutableObject<Locale> getBundleLocale(File file, String... fileNameSplit) {
         MutableObject<Locale> localeWrapper = null;
         if (fileNameSplit != null && fileNameSplit.length > 1) {
-            try {
-                localeWrapper = new MutableObject<Locale>(LocaleUtils.toLocale(fileNameSplit[1]));
-            } catch (IllegalArgumentException ignored) {
-                LOG.error("Invalid bundle locale '{}' for file '{}'", fileNameSplit[1], file);
+            Locale locale = localeRegistry.getLocale(fileNameSplit[1], file);
+            if (locale != null) {
+                localeWrapper = new MutableObject<Locale>(locale);
             }
         } else {
             localeWrapper = new MutableObject<Locale>();
@@ -200,26 +529,101 @@ public final class BundleProjectBuilder {
     }
 
     /**
-     * Extract the bundle properties from the file
+     * Extract the bundle keys from the file
      * @param file File
-     * @param flags Active rule flags
-     * @return Properties wrapper (nullable)
+     * @return Parsed keys (nullable)
      */
-    private static MutableObject<Map<String, String>> getBundleProperties(File file, Collection<Flag> flags) {
-        MutableObject<Map<String, String>> propertiesWrapper = null;
+    private ParsedKeys getBundleKeys(File file) {
+        ParsedKeys parsedKeys = null;
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Checksum checksum = new CRC32();
         InputStream is = null;
         try {
-            Properties properties = new Properties();
-            is = FileUtils.openInputStream(file);
-            properties.load(is);
-            propertiesWrapper = new MutableObject<Map<String, String>>(
-                    L10nUtils.toMap(properties, !flags.contains(Flag.UsesValues)));
+            final Map<String, Boolean> blankValues = new LinkedHashMap<String, Boolean>();
+            final Map<String, String> valueSignatures = placeholdersRead ? new HashMap<String, String>() : null;
+            final Map<String, Long> valueHashes = valueHashesRead ? new HashMap<String, Long>() : null;
+            PropertiesParser.Handler handler = new PropertiesParser.Handler() {
+                @Override
+                public void property(String key, char[] value, int offset, int length) {
+                    blankValues.put(key, value != null && isBlank(value, offset, length));
+                    if (valueSignatures != null) {
+                        String signature = PlaceholderParser.getSignature(value, offset, length);
+                        if (signature != null) {
+                            valueSignatures.put(key, internSignature(signature));
+                        } else {
+                            valueSignatures.remove(key);
+                        }
+                    }
+                    if (valueHashes != null) {
+                        valueHashes.put(key, ValueHasher.hash(value, offset, length));
+                    }
+                }
+            };
+            boolean values = flags.contains(Flag.UsesValues) || placeholdersRead || valueHashesRead;
+            int excluded;
+            if (mmapThreshold > 0 && size >= mmapThreshold && size <= Integer.MAX_VALUE) {
+                ByteBuffer buffer = BufferUtils.map(file);
+                excluded = PropertiesParser.parse(buffer, values, excludedKeys, handler);
+                if (cache != null) {
+                    BufferUtils.update(checksum, buffer);
+                }
+            } else {
+                is = FileUtils.openInputStream(file);
+                if (cache != null) {
+                    is = new CheckedInputStream(is, checksum);
+                }
+                excluded = PropertiesParser.parse(is, values, excludedKeys, handler);
+            }
+            String[] keys = new String[blankValues.size()];
+            KeyBitSet blankValuePositions = new KeyBitSet();
+            String[] signaturePositions = valueSignatures == null || valueSignatures.isEmpty() ? null :
+                    new String[keys.length];
+            long[] valueHashPositions = valueHashes != null ? new long[keys.length] : null;
+            int position = 0;
+            for (Entry<String, Boolean> blankValue : blankValues.entrySet()) {
+                keys[position] = blankValue.getKey();
+                if (blankValue.getValue()) {
+                    blankValuePositions.set(position);
+                }
+                if (signaturePositions != null) {
+                    signaturePositions[position] = valueSignatures.get(blankValue.getKey());
+                }
+                if (valueHashPositions != null) {
+                    valueHashPositions[position] = valueHashes.get(blankValue.getKey());
+                }
+                position++;
+            }
+            parsedKeys = new ParsedKeys(keys, blankValuePositions, signaturePositions, valueHashPositions,
+                    keys.length == 0 && excluded > 0);
+            bytesCounter.addAndGet(size);
+            keysCounter.addAndGet(keys.length);
+            excludedKeysCounter.addAndGet(excluded);
+            if (cache != null) {
+                cache.put(file, size, lastModified, checksum.getValue(), parsedKeys);
+            }
         } catch (IOException e) {
             LOG.error("Error while processing file " + file, e);
         } finally {
             IOUtils.closeQuietly(is);
         }
-        return propertiesWrapper;
+        return parsedKeys;
+    }
+
+    /**
+     * Is a value blank? Same as StringUtils.trimToNull(value) == null, without building the value String
+     * @param value Value characters
+     * @param offset Value offset
+     * @param length Value length
+     * @return TRUE if blank
+     */
+    private static boolean isBlank(char[] value, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (value[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -231,7 +635,7 @@ public final class BundleProjectBuilder {
         String[] fileNameSplit = null;
         String fileBaseName = FilenameUtils.getBaseName(file.getName());
         if (fileBaseName != null && !fileBaseName.isEmpty()) {
-            fileNameSplit = FILENAME_SPLITTER.split(fileBaseName, 2);
+            fileNameSplit = L10nUtils.splitFileName(fileBaseName);
         }
         if (ArrayUtils.isEmpty(fileNameSplit)) {
             fileNameSplit = null;
@@ -240,7 +644,91 @@ public final class BundleProjectBuilder {
         return fileNameSplit;
     }
 
-    /** Constructor (prevents from instantiation) */
-    private BundleProjectBuilder() {
+    /** Factory of daemon threads, keeping track of them for measuring their allocations */
+    private static final class TrackedThreadFactory implements ThreadFactory {
+
+        /** Thread factory */
+        private final ThreadFactory threadFactory;
+
+        /** Threads created */
+        private final Collection<Thread> threads = new ConcurrentLinkedQueue<Thread>();
+
+        /**
+         * Constructor
+         * @param nameFormat Thread name format
+         */
+        TrackedThreadFactory(String nameFormat) {
+            threadFactory = new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = threadFactory.newThread(runnable);
+            threads.add(thread);
+            return thread;
+        }
+
+        /**
+         * Get the bytes allocated so far by the threads still alive
+         * @return Allocated bytes, or -1 if not supported by the JVM
+         */
+        long getAllocatedBytes() {
+            if (L10nStatistics.getAllocatedBytes() < 0) {
+                return -1;
+            }
+            long allocated = 0;
+            for (Thread thread : threads) {
+                allocated += Math.max(L10nStatistics.getAllocatedBytes(thread), 0);
+            }
+            return allocated;
+        }
+    }
+
+    /** File submitted for parsing, in parallel or pipelined mode */
+    private static final class PendingFile {
+
+        /** End of the discovered files */
+        static final PendingFile END = new PendingFile(null, null);
+
+        /** File */
+        private final File file;
+
+        /** Parsed file future */
+        private final Future<ParsedFile> parsedFile;
+
+        /**
+         * Constructor
+         * @param file File
+         * @param parsedFile Parsed file future
+         */
+        PendingFile(File file, Future<ParsedFile> parsedFile) {
+            this.file = file;
+            this.parsedFile = parsedFile;
+        }
+    }
+
+    /** Result of a file parsing, to be merged into the bundle project */
+    private static final class ParsedFile {
+
+        /** Bundle parsed keys (nullable) */
+        private final ParsedKeys parsedKeys;
+
+        /** Bundle locale wrapper (nullable) */
+        private final MutableObject<Locale> localeWrapper;
+
+        /** Bundle name (nullable) */
+        private final String name;
+
+        /**
+         * Constructor
+         * @param name Bundle name (nullable)
+         * @param localeWrapper Bundle locale wrapper (nullable)
+         * @param parsedKeys Bundle parsed keys (nullable)
+         */
+        ParsedFile(String name, MutableObject<Locale> localeWrapper, ParsedKeys parsedKeys) {
+            this.name = name;
+            this.localeWrapper = localeWrapper;
+            this.parsedKeys = parsedKeys;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,443 @@
+package fr.gimmick.sonar.l10n.model;
+
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.BufferUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.LocaleUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Binary snapshot of a whole bundle project, from one analysis to another. It is only loaded if the active rule
+ * flags, the excluded key prefixes and the files (paths, sizes and last modification dates) did not change; otherwise
+ * the bundle project is built again, and the snapshot is saved at the end of the analysis.
+ * <p/>
+ * Format: a header (magic, version, body length, body CRC32), then a body with the analysis date, the configuration,
+ * the files, a string table (directories, bundle names, file names, keys, locales, placeholder signatures) and the
+ * bundles, made of string and locale indexes and of the key bitsets, signatures and value hashes of their files. The
+ * snapshot is memory-mapped to be loaded.
+ * @author Mickaël Tricot
+ */
+public final class BundleSnapshot {
+
+    /** Snapshot file format identifier */
+    private static final int FORMAT_MAGIC = 0x4C313053;
+
+    /** Snapshot file format version */
+    private static final int FORMAT_VERSION = 4;
+
+    /** Header size: magic, version, body length, body checksum */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+    /** Index of the null locale in the locale table */
+    private static final int LOCALE_NULL = -1;
+
+    /** Initial size of the buffer for the bytes of the strings being read */
+    private static final int STRING_BYTES_SIZE = 256;
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(BundleSnapshot.class);
+
+    /** Charset of the strings */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Active rule flags and excluded key prefixes of the current analysis */
+    private final List<String> configuration;
+
+    /** Snapshot file */
+    private final File file;
+
+    /** Files of the current analysis */
+    private List<File> files;
+
+    /** Date of the current analysis, before the files are discovered */
+    private final long timestamp;
+
+    /** Buffer for the bytes of the strings being read */
+    private byte[] stringBytes;
+
+    /**
+     * Constructor
+     * @param file Snapshot file (may not exist)
+     * @param flags Active rule flags
+     * @param excludedKeyPrefixes Excluded key prefixes
+     */
+    public BundleSnapshot(File file, Collection<Flag> flags, Collection<String> excludedKeyPrefixes) {
+        this.file = file;
+        configuration = BundleCache.getConfiguration(flags, excludedKeyPrefixes);
+        files = Collections.emptyList();
+        timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the index of a locale in the locale table, adding it if needed
+     * @param locales Locale table: locale -> index
+     * @param locale Locale (nullable)
+     * @return Index
+     */
+    private static int getLocaleIndex(Map<Locale, Integer> locales, Locale locale) {
+        if (locale == null) {
+            return LOCALE_NULL;
+        }
+        Integer index = locales.get(locale);
+        if (index == null) {
+            index = locales.size();
+            locales.put(locale, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the index of a string in the string table, adding it if needed
+     * @param strings String table: string -> index
+     * @param string String
+     * @return Index
+     */
+    private static int getStringIndex(Map<String, Integer> strings, String string) {
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    /**
+     * Read a key bitset
+     * @param input Input
+     * @return Key bitset
+     */
+    private static KeyBitSet readKeyBitSet(ByteBuffer input) {
+        long[] words = new long[input.getInt()];
+        input.asLongBuffer().get(words);
+        input.position(input.position() + words.length * 8);
+        return new KeyBitSet(words);
+    }
+
+    /**
+     * Write a key bitset
+     * @param output Output
+     * @param keyBitSet Key bitset
+     * @throws IOException Error while writing
+     */
+    private static void writeKeyBitSet(DataOutputStream output, KeyBitSet keyBitSet) throws IOException {
+        long[] words = keyBitSet.getWords();
+        output.writeInt(words.length);
+        for (long word : words) {
+            output.writeLong(word);
+        }
+    }
+
+    /**
+     * Write a string
+     * @param output Output
+     * @param string String
+     * @throws IOException Error while writing
+     */
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Write the snapshot header, once the body has been written
+     * @param tempFile Snapshot file being written
+     * @param length Body length
+     * @param checksum Body checksum
+     * @throws IOException Error while writing
+     */
+    private static void writeHeader(File tempFile, long length, long checksum) throws IOException {
+        RandomAccessFile output = new RandomAccessFile(tempFile, "rw");
+        try {
+            output.writeInt(FORMAT_MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(length);
+            output.writeLong(checksum);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Load the snapshot, if it is still valid for the files of the current analysis
+     * @param currentFiles Files of the current analysis (the snapshot must be created before they are discovered)
+     * @return Bundle project (null if there is no valid snapshot)
+     */
+    public BundleProject load(List<File> currentFiles) {
+        files = currentFiles;
+        BundleProject bundleProject = null;
+        if (file.isFile()) {
+            try {
+                bundleProject = read(BufferUtils.map(file));
+            } catch (IOException e) {
+                LOG.warn("Cannot read the L10n snapshot '" + file + "', ignoring it", e);
+            } catch (BufferUnderflowException e) {
+                LOG.warn("L10n snapshot '" + file + "' is truncated, ignoring it", e);
+            }
+        }
+        if (bundleProject != null) {
+            LOG.info("L10n snapshot '{}' loaded with {} files", file, files.size());
+        }
+        return bundleProject;
+    }
+
+    /**
+     * Read the snapshot
+     * @param input Snapshot content
+     * @return Bundle project (null if the snapshot is not valid)
+     */
+    private BundleProject read(ByteBuffer input) {
+        if (input.remaining() < HEADER_SIZE || input.getInt() != FORMAT_MAGIC || input.getInt() != FORMAT_VERSION) {
+            LOG.info("L10n snapshot '{}' has an unknown format, ignoring it", file);
+            return null;
+        }
+        long length = input.getLong();
+        long checksumValue = input.getLong();
+        Checksum checksum = new CRC32();
+        BufferUtils.update(checksum, input);
+        if (length != input.remaining() || checksumValue != checksum.getValue()) {
+            LOG.info("L10n snapshot '{}' is corrupted, ignoring it", file);
+            return null;
+        }
+        stringBytes = new byte[STRING_BYTES_SIZE];
+        long snapshotTimestamp = input.getLong();
+        int configurationSize = input.getInt();
+        List<String> snapshotConfiguration = new ArrayList<String>(configurationSize);
+        for (int i = 0; i < configurationSize; i++) {
+            snapshotConfiguration.add(readString(input));
+        }
+        if (!configuration.equals(snapshotConfiguration)) {
+            LOG.info("L10n configuration changed, ignoring the snapshot '{}'", file);
+            return null;
+        }
+        if (!readFiles(input, snapshotTimestamp)) {
+            LOG.info("L10n files changed, ignoring the snapshot '{}'", file);
+            return null;
+        }
+
+        String[] strings = new String[input.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(input);
+        }
+        Locale[] locales = new Locale[input.getInt()];
+        for (int i = 0; i < locales.length; i++) {
+            locales[i] = LocaleUtils.toLocale(strings[input.getInt()]);
+        }
+        BundleProject bundleProject = new BundleProject();
+        for (int i = input.getInt(); i > 0; i--) {
+            int locale = input.getInt();
+            bundleProject.getLocales().add(locale == LOCALE_NULL ? null : locales[locale]);
+        }
+        DirectoryTable directories = new DirectoryTable();
+        for (int i = input.getInt(); i > 0; i--) {
+            BundleId id = new BundleId(directories.intern(strings[input.getInt()]), strings[input.getInt()]);
+            Bundle bundle = new Bundle(id);
+            for (int j = input.getInt(); j > 0; j--) {
+                bundle.getKeyDictionary().intern(strings[input.getInt()]);
+            }
+            for (int j = input.getInt(); j > 0; j--) {
+                int locale = input.getInt();
+                String fileName = strings[input.getInt()];
+                boolean allKeysExcluded = input.get() != 0;
+                KeyBitSet keyIds = readKeyBitSet(input);
+                KeyBitSet blankValueKeyIds = readKeyBitSet(input);
+                int[] signatureKeyIds = new int[input.getInt()];
+                String[] signatures = new String[signatureKeyIds.length];
+                for (int k = 0; k < signatureKeyIds.length; k++) {
+                    signatureKeyIds[k] = input.getInt();
+                    signatures[k] = strings[input.getInt()];
+                }
+                long[] valueHashes = new long[input.getInt()];
+                for (int k = 0; k < valueHashes.length; k++) {
+                    valueHashes[k] = input.getLong();
+                }
+                bundle.addFile(locale == LOCALE_NULL ? null : locales[locale], new BundleFile(fileName, keyIds,
+                        blankValueKeyIds, signatureKeyIds, signatures, valueHashes, allKeysExcluded));
+            }
+            bundleProject.getBundles().put(id, bundle);
+        }
+        return bundleProject;
+    }
+
+    /**
+     * Read a string
+     * @param input Input
+     * @return String
+     */
+    private String readString(ByteBuffer input) {
+        int length = input.getInt();
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+        }
+        input.get(stringBytes, 0, length);
+        return new String(stringBytes, 0, length, UTF_8);
+    }
+
+    /**
+     * Read the files of the snapshot, and compare them to the files of the current analysis
+     * @param input Input
+     * @param snapshotTimestamp Date of the analysis which saved the snapshot
+     * @return TRUE if the files did not change since the analysis which saved the snapshot
+     */
+    private boolean readFiles(ByteBuffer input, long snapshotTimestamp) {
+        int filesSize = input.getInt();
+        if (filesSize != files.size()) {
+            return false;
+        }
+        Map<String, File> currentFiles = new HashMap<String, File>(files.size() * 2);
+        for (File currentFile : files) {
+            currentFiles.put(currentFile.getPath(), currentFile);
+        }
+        for (int i = 0; i < filesSize; i++) {
+            File currentFile = currentFiles.get(readString(input));
+            long size = input.getLong();
+            long lastModified = input.getLong();
+            // files modified while the snapshot was being built may have been parsed before their modification
+            if (currentFile == null || currentFile.length() != size || currentFile.lastModified() != lastModified ||
+                    lastModified >= snapshotTimestamp - BundleCache.RACY_DELAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save the snapshot of a bundle project, built from the files of the current analysis
+     * @param bundleProject Bundle project
+     */
+    public void save(BundleProject bundleProject) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        OutputStream stream = null;
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            stream = new BufferedOutputStream(FileUtils.openOutputStream(tempFile));
+            stream.write(new byte[HEADER_SIZE]);
+            Checksum checksum = new CRC32();
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(stream, checksum));
+            write(output, bundleProject);
+            output.close();
+            if (output.size() == Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large");
+            }
+            writeHeader(tempFile, output.size(), checksum.getValue());
+            FileUtils.deleteQuietly(file);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot rename '" + tempFile + "' to '" + file + '\'');
+            }
+            LOG.info("L10n snapshot '{}' saved with {} files", file, files.size());
+        } catch (IOException e) {
+            LOG.warn("Cannot save the L10n snapshot '" + file + '\'', e);
+            FileUtils.deleteQuietly(tempFile);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Write the snapshot body
+     * @param output Output
+     * @param bundleProject Bundle project
+     * @throws IOException Error while writing
+     */
+    private void write(DataOutputStream output, BundleProject bundleProject) throws IOException {
+        output.writeLong(timestamp);
+        output.writeInt(configuration.size());
+        for (String configurationItem : configuration) {
+            writeString(output, configurationItem);
+        }
+        output.writeInt(files.size());
+        for (File currentFile : files) {
+            writeString(output, currentFile.getPath());
+            output.writeLong(currentFile.length());
+            output.writeLong(currentFile.lastModified());
+        }
+
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        Map<Locale, Integer> locales = new LinkedHashMap<Locale, Integer>();
+        for (Locale locale : bundleProject.getLocales()) {
+            getLocaleIndex(locales, locale);
+        }
+        for (Bundle bundle : bundleProject.getBundles().values()) {
+            getStringIndex(strings, bundle.getId().getDirectory().getPath());
+            getStringIndex(strings, bundle.getId().getName());
+            for (String key : bundle.getKeyDictionary().getKeys()) {
+                getStringIndex(strings, key);
+            }
+            for (Entry<Locale, BundleFile> bundleFile : bundle.getFiles().entrySet()) {
+                getLocaleIndex(locales, bundleFile.getKey());
+                getStringIndex(strings, bundleFile.getValue().getFileName());
+                for (String signature : bundleFile.getValue().getSignatures()) {
+                    getStringIndex(strings, signature);
+                }
+            }
+        }
+        for (Locale locale : locales.keySet()) {
+            getStringIndex(strings, locale.toString());
+        }
+
+        output.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            writeString(output, string);
+        }
+        output.writeInt(locales.size());
+        for (Locale locale : locales.keySet()) {
+            output.writeInt(strings.get(locale.toString()));
+        }
+        output.writeInt(bundleProject.getLocales().size());
+        for (Locale locale : bundleProject.getLocales()) {
+            output.writeInt(getLocaleIndex(locales, locale));
+        }
+        output.writeInt(bundleProject.getBundles().size());
+        for (Bundle bundle : bundleProject.getBundles().values()) {
+            output.writeInt(strings.get(bundle.getId().getDirectory().getPath()));
+            output.writeInt(strings.get(bundle.getId().getName()));
+            output.writeInt(bundle.getKeyDictionary().size());
+            for (String key : bundle.getKeyDictionary().getKeys()) {
+                output.writeInt(strings.get(key));
+            }
+            output.writeInt(bundle.getFiles().size());
+            for (Entry<Locale, BundleFile> bundleFile : bundle.getFiles().entrySet()) {
+                output.writeInt(getLocaleIndex(locales, bundleFile.getKey()));
+                output.writeInt(strings.get(bundleFile.getValue().getFileName()));
+                output.writeByte(bundleFile.getValue().isAllKeysExcluded() ? 1 : 0);
+                writeKeyBitSet(output, bundleFile.getValue().getKeyIds());
+                writeKeyBitSet(output, bundleFile.getValue().getBlankValueKeyIds());
+                int[] signatureKeyIds = bundleFile.getValue().getSignatureKeyIds();
+                output.writeInt(signatureKeyIds.length);
+                for (int i = 0; i < signatureKeyIds.length; i++) {
+                    output.writeInt(signatureKeyIds[i]);
+                    output.writeInt(strings.get(bundleFile.getValue().getSignatures()[i]));
+                }
+                long[] valueHashes = bundleFile.getValue().getValueHashes();
+                output.writeInt(valueHashes.length);
+                for (long valueHash : valueHashes) {
+                    output.writeLong(valueHash);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package fr.gimmick.sonar.l10n.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table of the bundle directories, so that each directory path is stored once (not thread-safe)
+ * @author Mickaël Tricot
+ */
+final class DirectoryTable {
+
+    /** Directories: path -> directory */
+    private final Map<String, BundleDirectory> directories = new HashMap<String, BundleDirectory>();
+
+    /**
+     * Get the directory of a path, creating it on the first call
+     * @param path Path
+     * @return Directory
+     */
+    BundleDirectory intern(String path) {
+        BundleDirectory directory = directories.get(path);
+        if (directory == null) {
+            directory = new BundleDirectory(path);
+            directories.put(path, directory);
+        }
+        return directory;
+    }
+}
@@ -0,0 +1,176 @@
+package fr.gimmick.sonar.l10n.model;
+
+/**
+ * Compact set of key IDs (see KeyDictionary), one bit per key
+ * @author Mickaël Tricot
+ */
+public final class KeyBitSet {
+
+    /** Number of bits per word (as a power of 2) */
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    /** No word */
+    private static final long[] NO_WORDS = new long[0];
+
+    /** Words */
+    private long[] words;
+
+    /** Constructor */
+    KeyBitSet() {
+        words = NO_WORDS;
+    }
+
+    /**
+     * Constructor
+     * @param words Words (not copied)
+     */
+    KeyBitSet(long[] words) {
+        this.words = words.length == 0 ? NO_WORDS : words;
+    }
+
+    /**
+     * Get the index of the word containing a bit
+     * @param index Bit index
+     * @return Word index
+     */
+    private static int wordIndex(int index) {
+        return index >> ADDRESS_BITS_PER_WORD;
+    }
+
+    /**
+     * Number of bits set
+     * @return Cardinality
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    /**
+     * Words getter
+     * @return Words (not copied)
+     */
+    long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Is a bit set?
+     * @param index Bit index
+     * @return TRUE if set
+     */
+    public boolean get(int index) {
+        int wordIndex = wordIndex(index);
+        return wordIndex < words.length && (words[wordIndex] & 1L << index) != 0;
+    }
+
+    /**
+     * Is no bit set?
+     * @return TRUE if empty
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the next bit set
+     * @param fromIndex Index to start from (inclusive)
+     * @return Index of the next bit set (-1 if none)
+     */
+    public int nextSetBit(int fromIndex) {
+        int wordIndex = wordIndex(fromIndex);
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & -1L << fromIndex;
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Get the next bit set in this set and not in another one, without computing the difference: the words are
+     * combined (AND-NOT) on the fly
+     * @param other Other set
+     * @param fromIndex Index to start from (inclusive)
+     * @return Index of the next bit set in this set and not in the other one (-1 if none)
+     */
+    public int nextSetBitAndNot(KeyBitSet other, int fromIndex) {
+        int wordIndex = wordIndex(fromIndex);
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = andNot(other, wordIndex) & -1L << fromIndex;
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = andNot(other, wordIndex);
+        }
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Combine a word of this set with the same word of another set
+     * @param other Other set
+     * @param wordIndex Word index (in this set)
+     * @return Word with the bits set in this set and not in the other one
+     */
+    private long andNot(KeyBitSet other, int wordIndex) {
+        return wordIndex < other.words.length ? words[wordIndex] & ~other.words[wordIndex] : words[wordIndex];
+    }
+
+    /**
+     * Add all the bits of another set
+     * @param other Other set
+     */
+    void or(KeyBitSet other) {
+        if (other.words.length > words.length) {
+            long[] newWords = new long[other.words.length];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            words = newWords;
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Set a bit
+     * @param index Bit index
+     */
+    void set(int index) {
+        int wordIndex = wordIndex(index);
+        if (wordIndex >= words.length) {
+            long[] newWords = new long[Math.max(wordIndex + 1, words.length * 2)];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            words = newWords;
+        }
+        words[wordIndex] |= 1L << index;
+    }
+
+    /** Release the unused words */
+    void trim() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+        if (length < words.length) {
+            long[] newWords = new long[length];
+            System.arraycopy(words, 0, newWords, 0, length);
+            words = newWords;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fr.gimmick.sonar.l10n.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of the keys of a bundle: each key is stored once and identified by an integer (from 0 to size - 1, in
+ * the order the keys have been added)
+ * @author Mickaël Tricot
+ */
+public final class KeyDictionary {
+
+    /** Keys: ID -> key */
+    private final List<String> keys;
+
+    /** IDs: key -> ID */
+    private final Map<String, Integer> ids;
+
+    /** Constructor */
+    KeyDictionary() {
+        keys = new ArrayList<String>();
+        ids = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Get the ID of a key
+     * @param key Key
+     * @return ID (-1 if the key is not in the dictionary)
+     */
+    public int getId(String key) {
+        Integer id = ids.get(key);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Get a key from its ID
+     * @param id ID
+     * @return Key
+     */
+    public String getKey(int id) {
+        return keys.get(id);
+    }
+
+    /**
+     * Keys getter
+     * @return Keys, ordered by ID
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Add a key to the dictionary, if not already added
+     * @param key Key
+     * @return ID
+     */
+    int intern(String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keys.size();
+            keys.add(key);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Number of keys
+     * @return Size
+     */
+    public int size() {
+        return keys.size();
+    }
+}
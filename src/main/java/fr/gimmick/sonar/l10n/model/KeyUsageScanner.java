@@ -0,0 +1,366 @@
+package fr.gimmick.sonar.l10n.model;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.gimmick.sonar.l10n.utils.BufferUtils;
+import fr.gimmick.sonar.l10n.utils.KeyMatcher;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scanner for the usages of the keys of a bundle project in the source code. All the keys are compiled into a single
+ * automaton, and each source file is read once (memory-mapped from a size threshold), concurrently (with a bounded
+ * number of files in flight):
+ * <ul>
+ * <li>a key is used if it is found anywhere in a source file, between two characters that cannot be part of a key
+ * (letter, digit, '.', '_', '-')</li>
+ * <li>a string literal (between double or single quotes, on a single line) is an undefined key if it looks like a key
+ * (only key characters, at least a '.' inside), starts with the first segment of a key of the project (such as
+ * "user." for "user.name") and is not a key of the project (nor an excluded key)</li>
+ * </ul>
+ * The source files are read as bytes, compared to the UTF-8 bytes of the keys.
+ * @author Mickaël Tricot
+ */
+public final class KeyUsageScanner {
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(KeyUsageScanner.class);
+
+    /** Key segment separator */
+    private static final char SEGMENT_SEPARATOR = '.';
+
+    /** Name format for the threads scanning the source files */
+    private static final String THREAD_NAME_FORMAT = "l10n-key-usage-scanner-%d";
+
+    /** Source file encoding, for the undefined keys */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Matcher for the keys to exclude */
+    private final KeyPrefixMatcher excludedKeys;
+
+    /** Size from which the files are memory-mapped (0 for never) */
+    private final long mmapThreshold;
+
+    /** Analysis statistics */
+    private final L10nStatistics statistics;
+
+    /** Number of threads for scanning the files */
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param excludedKeys Matcher for the keys to exclude
+     * @param threads Number of threads for scanning the files
+     * @param mmapThreshold Size from which the files are memory-mapped (0 for never)
+     * @param statistics Analysis statistics
+     */
+    public KeyUsageScanner(KeyPrefixMatcher excludedKeys, int threads, long mmapThreshold,
+            L10nStatistics statistics) {
+        this.excludedKeys = excludedKeys;
+        this.threads = threads;
+        this.mmapThreshold = mmapThreshold;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Is a byte part of a key? Non ASCII bytes are, as parts of UTF-8 encoded letters
+     * @param b Byte
+     * @return TRUE if part of a key
+     */
+    private static boolean isKeyByte(byte b) {
+        return b < 0 || b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '.' ||
+                b == '_' || b == '-';
+    }
+
+    /**
+     * Is the byte at a position part of a key?
+     * @param buffer Buffer
+     * @param position Position (may be out of the buffer)
+     * @return TRUE if part of a key
+     */
+    private static boolean isKeyByte(ByteBuffer buffer, int position) {
+        return position >= 0 && position < buffer.limit() && isKeyByte(buffer.get(position));
+    }
+
+    /**
+     * Scan the source files
+     * @param bundleProject Bundle project
+     * @param sources Source files
+     * @param undefinedKeys Look for undefined keys? (only relevant if the bundle project has all the bundles)
+     * @return Key usages
+     */
+    public KeyUsages scan(BundleProject bundleProject, Iterable<File> sources, boolean undefinedKeys) {
+        long start = System.nanoTime();
+        Map<String, Integer> keyIndexes = new LinkedHashMap<String, Integer>();
+        Set<String> namespaces = new HashSet<String>();
+        for (Bundle bundle : bundleProject.getBundles().values()) {
+            for (String key : bundle.getKeys()) {
+                if (!keyIndexes.containsKey(key)) {
+                    keyIndexes.put(key, keyIndexes.size());
+                    int separator = key.indexOf(SEGMENT_SEPARATOR);
+                    if (separator > 0) {
+                        namespaces.add(key.substring(0, separator));
+                    }
+                }
+            }
+        }
+        KeyMatcher matcher = KeyMatcher.compile(new ArrayList<String>(keyIndexes.keySet()));
+        LOG.info("Scanning the source files for {} keys", keyIndexes.size());
+        AtomicLongArray usedKeys = new AtomicLongArray((keyIndexes.size() + Long.SIZE - 1) / Long.SIZE);
+        SourceScan scan = new SourceScan(matcher, usedKeys, undefinedKeys ? keyIndexes : null, namespaces);
+
+        List<KeyUsages.Reference> references = new ArrayList<KeyUsages.Reference>();
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_FORMAT).setDaemon(true).build()) : null;
+        try {
+            Deque<Future<List<KeyUsages.Reference>>> scannedFiles =
+                    new ArrayDeque<Future<List<KeyUsages.Reference>>>();
+            for (File source : sources) {
+                scannedFiles.add(executor != null ? executor.submit(scan.forFile(source)) :
+                        Futures.immediateFuture(scan.scan(source)));
+                // collect the scanned heads, waiting only when too many files are in flight
+                while (!scannedFiles.isEmpty() && (scannedFiles.size() >= BundleProjectBuilder.MAX_PENDING_FILES ||
+                        scannedFiles.peek().isDone())) {
+                    references.addAll(getReferences(scannedFiles.poll()));
+                }
+            }
+            for (Future<List<KeyUsages.Reference>> scannedFile : scannedFiles) {
+                references.addAll(getReferences(scannedFile));
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+
+        long[] words = new long[usedKeys.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = usedKeys.get(i);
+        }
+        KeyBitSet usedKeySet = new KeyBitSet(words);
+        LOG.info("{} keys used in the source code, {} references to undefined keys",
+                usedKeySet.cardinality(), references.size());
+        statistics.addTime(L10nStatistics.SCAN, System.nanoTime() - start);
+        return new KeyUsages(keyIndexes, usedKeySet, Collections.unmodifiableList(references));
+    }
+
+    /**
+     * Wait for a source file to be scanned
+     * @param future Scan future
+     * @return References to undefined keys
+     */
+    private static List<KeyUsages.Reference> getReferences(Future<List<KeyUsages.Reference>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning the source files", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Error while scanning the source files", e.getCause());
+        }
+    }
+
+    /**
+     * Read a source file
+     * @param file File
+     * @return Content
+     * @throws IOException Error while reading the file
+     */
+    private ByteBuffer read(File file) throws IOException {
+        long size = file.length();
+        if (mmapThreshold > 0 && size >= mmapThreshold && size <= Integer.MAX_VALUE) {
+            return BufferUtils.map(file);
+        }
+        return ByteBuffer.wrap(FileUtils.readFileToByteArray(file));
+    }
+
+    /** Scan of the source files, shared by all the files: it only updates the used keys, atomically */
+    private final class SourceScan {
+
+        /** Keys of the bundle project: key -> index (null if the undefined keys are not looked for) */
+        private final Map<String, Integer> keyIndexes;
+
+        /** Automaton of the keys */
+        private final KeyMatcher matcher;
+
+        /** First segments of the keys */
+        private final Set<String> namespaces;
+
+        /** Indexes of the keys used */
+        private final AtomicLongArray usedKeys;
+
+        /**
+         * Constructor
+         * @param matcher Automaton of the keys
+         * @param usedKeys Indexes of the keys used
+         * @param keyIndexes Keys of the bundle project: key -> index (null if the undefined keys are not looked for)
+         * @param namespaces First segments of the keys
+         */
+        SourceScan(KeyMatcher matcher, AtomicLongArray usedKeys, Map<String, Integer> keyIndexes,
+                Set<String> namespaces) {
+            this.matcher = matcher;
+            this.usedKeys = usedKeys;
+            this.keyIndexes = keyIndexes;
+            this.namespaces = namespaces;
+        }
+
+        /**
+         * Get the task scanning a source file
+         * @param file Source file
+         * @return Task, returning the references to undefined keys
+         */
+        Callable<List<KeyUsages.Reference>> forFile(final File file) {
+            return new Callable<List<KeyUsages.Reference>>() {
+                @Override
+                public List<KeyUsages.Reference> call() {
+                    return scan(file);
+                }
+            };
+        }
+
+        /**
+         * Scan a source file
+         * @param file Source file
+         * @return References to undefined keys
+         */
+        List<KeyUsages.Reference> scan(File file) {
+            LOG.debug("Scanning source file '{}'", file);
+            try {
+                ByteBuffer buffer = read(file);
+                statistics.add(L10nStatistics.SOURCES, 1);
+                statistics.add(L10nStatistics.SOURCE_BYTES, buffer.limit());
+                return scan(file, buffer);
+            } catch (IOException e) {
+                LOG.error("Error while scanning source file " + file, e);
+                return Collections.emptyList();
+            }
+        }
+
+        /**
+         * Scan a source file, in a single pass: key matches and string literals
+         * @param file Source file
+         * @param buffer Source file content
+         * @return References to undefined keys
+         */
+        private List<KeyUsages.Reference> scan(File file, ByteBuffer buffer) {
+            List<KeyUsages.Reference> references = Collections.emptyList();
+            int state = KeyMatcher.ROOT;
+            int line = 1;
+            int literalStart = -1;
+            byte quote = 0;
+            boolean escaped = false;
+            boolean keyLike = false;
+            boolean separator = false;
+            for (int i = 0; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                state = matcher.next(state, b);
+                for (int match = matcher.getMatchState(state); match >= 0; match = matcher.getNextMatchState(match)) {
+                    int key = matcher.getKey(match);
+                    if (!isKeyByte(buffer, i - matcher.getKeyLength(key)) && !isKeyByte(buffer, i + 1)) {
+                        setUsed(key);
+                    }
+                }
+                if (keyIndexes != null) {
+                    if (literalStart < 0) {
+                        if (b == '"' || b == '\'') {
+                            literalStart = i + 1;
+                            quote = b;
+                            keyLike = true;
+                            separator = false;
+                        }
+                    } else if (escaped) {
+                        escaped = false;
+                    } else if (b == quote) {
+                        if (keyLike && separator) {
+                            KeyUsages.Reference reference = getUndefinedKey(file, line, buffer, literalStart, i);
+                            if (reference != null) {
+                                if (references.isEmpty()) {
+                                    references = new ArrayList<KeyUsages.Reference>();
+                                }
+                                references.add(reference);
+                            }
+                        }
+                        literalStart = -1;
+                    } else if (b == '\n') {
+                        literalStart = -1;
+                    } else if (b == '\\') {
+                        escaped = true;
+                        keyLike = false;
+                    } else if (b == SEGMENT_SEPARATOR) {
+                        separator = true;
+                    } else if (!isKeyByte(b)) {
+                        keyLike = false;
+                    }
+                }
+                if (b == '\n') {
+                    line++;
+                }
+            }
+            return references;
+        }
+
+        /**
+         * Get the undefined key of a key-like string literal
+         * @param file Source file
+         * @param line Line
+         * @param buffer Source file content
+         * @param start Literal start
+         * @param end Literal end (closing quote)
+         * @return Reference to the undefined key (null if the literal is a defined key, or does not look like a key)
+         */
+        private KeyUsages.Reference getUndefinedKey(File file, int line, ByteBuffer buffer, int start, int end) {
+            if (buffer.get(start) == SEGMENT_SEPARATOR || buffer.get(end - 1) == SEGMENT_SEPARATOR) {
+                // file extension, or key prefix of a computed key
+                return null;
+            }
+            byte[] bytes = new byte[end - start];
+            ByteBuffer literal = buffer.duplicate();
+            literal.position(start);
+            literal.get(bytes);
+            String key = new String(bytes, UTF_8);
+            if (keyIndexes.containsKey(key) || excludedKeys.matches(key) ||
+                    !namespaces.contains(key.substring(0, key.indexOf(SEGMENT_SEPARATOR)))) {
+                return null;
+            }
+            return new KeyUsages.Reference(file, line, key);
+        }
+
+        /**
+         * Mark a key as used
+         * @param key Key index
+         */
+        private void setUsed(int key) {
+            int word = key / Long.SIZE;
+            long mask = 1L << key % Long.SIZE;
+            long value = usedKeys.get(word);
+            while ((value & mask) == 0 && !usedKeys.compareAndSet(word, value, value | mask)) {
+                value = usedKeys.get(word);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package fr.gimmick.sonar.l10n.model;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Usages of the keys of a bundle project in the source code: which keys are referenced, and which key-like string
+ * literals reference keys not defined in any bundle
+ * @author Mickaël Tricot
+ */
+public final class KeyUsages {
+
+    /** Keys of the bundle project: key -> index */
+    private final Map<String, Integer> keyIndexes;
+
+    /** Undefined keys, in the order of the source files */
+    private final List<Reference> undefinedKeys;
+
+    /** Indexes of the keys referenced in the source code */
+    private final KeyBitSet usedKeys;
+
+    /**
+     * Constructor
+     * @param keyIndexes Keys of the bundle project: key -> index
+     * @param usedKeys Indexes of the keys referenced in the source code
+     * @param undefinedKeys Undefined keys, in the order of the source files
+     */
+    KeyUsages(Map<String, Integer> keyIndexes, KeyBitSet usedKeys, List<Reference> undefinedKeys) {
+        this.keyIndexes = keyIndexes;
+        this.usedKeys = usedKeys;
+        this.undefinedKeys = undefinedKeys;
+    }
+
+    /**
+     * Undefined keys getter
+     * @return References to keys not defined in any bundle, in the order of the source files
+     */
+    public List<Reference> getUndefinedKeys() {
+        return undefinedKeys;
+    }
+
+    /**
+     * Is a key referenced in the source code?
+     * @param key Key
+     * @return TRUE if referenced, or if the key was not scanned for
+     */
+    public boolean isUsed(String key) {
+        Integer index = keyIndexes.get(key);
+        return index == null || usedKeys.get(index);
+    }
+
+    /** Reference to a key in a source file */
+    public static final class Reference {
+
+        /** Source file */
+        private final File file;
+
+        /** Key */
+        private final String key;
+
+        /** Line (starting at 1) */
+        private final int line;
+
+        /**
+         * Constructor
+         * @param file Source file
+         * @param line Line (starting at 1)
+         * @param key Key
+         */
+        Reference(File file, int line, String key) {
+            this.file = file;
+            this.line = line;
+            this.key = key;
+        }
+
+        /**
+         * File getter
+         * @return Source file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Key getter
+         * @return Key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Line getter
+         * @return Line (starting at 1)
+         */
+        public int getLine() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package fr.gimmick.sonar.l10n.model;
+
+import java.util.Arrays;
+
+/**
+ * Keys parsed from a bundle file, before being added to the bundle key dictionary
+ * @author Mickaël Tricot
+ */
+final class ParsedKeys {
+
+    /** No keys, for the files that are not read */
+    static final ParsedKeys NONE = new ParsedKeys(new String[0], new KeyBitSet(), null, null, false);
+
+    /** If all the keys have been excluded */
+    private final boolean allKeysExcluded;
+
+    /** Positions of the keys with a blank value */
+    private final KeyBitSet blankValues;
+
+    /** Keys, in the order of the file */
+    private final String[] keys;
+
+    /** Placeholder signatures of the values, in the order of the keys (null if no value has a placeholder) */
+    private final String[] signatures;
+
+    /** Hashes of the values, in the order of the keys (null if the value hashes are not processed) */
+    private final long[] valueHashes;
+
+    /**
+     * Constructor
+     * @param keys Keys
+     * @param blankValues Positions of the keys with a blank value
+     * @param signatures Placeholder signatures of the values, in the order of the keys (nullable)
+     * @param valueHashes Hashes of the values, in the order of the keys (nullable)
+     * @param allKeysExcluded All keys excluded?
+     */
+    ParsedKeys(String[] keys, KeyBitSet blankValues, String[] signatures, long[] valueHashes,
+            boolean allKeysExcluded) {
+        this.keys = keys;
+        this.blankValues = blankValues;
+        this.signatures = signatures;
+        this.valueHashes = valueHashes;
+        this.allKeysExcluded = allKeysExcluded;
+    }
+
+    /**
+     * Build the bundle file, adding the keys to the bundle key dictionary. The keys are replaced by their canonical
+     * instance from the dictionary
+     * @param fileName Name of the properties file
+     * @param dictionary Bundle key dictionary
+     * @return Bundle file
+     */
+    BundleFile toBundleFile(String fileName, KeyDictionary dictionary) {
+        KeyBitSet keyIds = new KeyBitSet();
+        KeyBitSet blankValueKeyIds = new KeyBitSet();
+        // key ID (high bits) and position (low bits) of the keys with a signature (or of all the keys if the value
+        // hashes are processed), to be sorted by key ID
+        long[] sortedKeys = signatures != null || valueHashes != null ? new long[keys.length] : null;
+        int sortedCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int id = dictionary.intern(keys[i]);
+            keys[i] = dictionary.getKey(id);
+            keyIds.set(id);
+            if (blankValues.get(i)) {
+                blankValueKeyIds.set(id);
+            }
+            if (sortedKeys != null && (valueHashes != null || signatures[i] != null)) {
+                sortedKeys[sortedCount++] = (long) id << Integer.SIZE | i;
+            }
+        }
+        keyIds.trim();
+        blankValueKeyIds.trim();
+        int signatureCount = 0;
+        if (signatures != null) {
+            for (int i = 0; i < sortedCount; i++) {
+                if (signatures[(int) sortedKeys[i]] != null) {
+                    signatureCount++;
+                }
+            }
+        }
+        int[] signatureKeyIds = new int[signatureCount];
+        String[] keySignatures = new String[signatureCount];
+        long[] keyValueHashes = new long[valueHashes != null ? sortedCount : 0];
+        if (sortedCount > 0) {
+            Arrays.sort(sortedKeys, 0, sortedCount);
+            for (int i = 0, j = 0; i < sortedCount; i++) {
+                int position = (int) sortedKeys[i];
+                if (signatures != null && signatures[position] != null) {
+                    signatureKeyIds[j] = (int) (sortedKeys[i] >>> Integer.SIZE);
+                    keySignatures[j++] = signatures[position];
+                }
+                if (valueHashes != null) {
+                    keyValueHashes[i] = valueHashes[position];
+                }
+            }
+        }
+        return new BundleFile(fileName, keyIds, blankValueKeyIds, signatureKeyIds, keySignatures, keyValueHashes,
+                allKeysExcluded);
+    }
+
+    /**
+     * Blank values getter
+     * @return Positions of the keys with a blank value
+     */
+    KeyBitSet getBlankValues() {
+        return blankValues;
+    }
+
+    /**
+     * Keys getter
+     * @return Keys
+     */
+    String[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Signatures getter
+     * @return Placeholder signatures of the values, in the order of the keys (nullable)
+     */
+    String[] getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * Value hashes getter
+     * @return Hashes of the values, in the order of the keys (nullable)
+     */
+    long[] getValueHashes() {
+        return valueHashes;
+    }
+
+    /**
+     * All keys excluded getter
+     * @return All keys excluded?
+     */
+    boolean isAllKeysExcluded() {
+        return allKeysExcluded;
+    }
+}
@@ -0,0 +1,110 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.L10nPlugin;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
+import org.apache.commons.lang3.StringUtils;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.check.Cardinality;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Inconsistent placeholder localization rule: the placeholders of a value (MessageFormat arguments and printf format
+ * specifiers) differ from the ones of the default bundle file (without locale)
+ * @author Mickaël Tricot
+ */
+public final class InconsistentPlaceholderRule implements L10nRule {
+
+    /** Signature description when a value has no placeholder */
+    private static final String NO_PLACEHOLDER = "none";
+
+    /** Sonar rule */
+    private final Rule rule;
+
+    /** Constructor */
+    public InconsistentPlaceholderRule() {
+        rule = Rule.create();
+        rule.setUniqueKey(L10nPlugin.KEY, L10nUtils.getRuleKey(getClass()));
+        rule.setName("Inconsistent L10n placeholders");
+        rule.setCardinality(Cardinality.MULTIPLE);
+        rule.setSeverity(RulePriority.CRITICAL);
+        rule.setDescription("Localization value whose placeholders ({0}, {1,number}, %s...) differ from the ones of " +
+                "the default bundle");
+    }
+
+    @Override
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        // placeholders are checked at the file level
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        BundleFile defaultFile = bundle.getFiles().get(null);
+        if (locale == null || defaultFile == null || !context.getLocales().contains(locale)) {
+            return;
+        }
+        // both signature key IDs are sorted: merge them
+        int[] defaultIds = defaultFile.getSignatureKeyIds();
+        String[] defaultSignatures = defaultFile.getSignatures();
+        int[] ids = file.getSignatureKeyIds();
+        String[] signatures = file.getSignatures();
+        ViolationSink violations = null;
+        for (int i = 0, j = 0; i < defaultIds.length || j < ids.length;) {
+            int id;
+            String defaultSignature = null;
+            String signature = null;
+            if (j >= ids.length || i < defaultIds.length && defaultIds[i] < ids[j]) {
+                id = defaultIds[i];
+                defaultSignature = defaultSignatures[i++];
+            } else if (i >= defaultIds.length || ids[j] < defaultIds[i]) {
+                id = ids[j];
+                signature = signatures[j++];
+            } else {
+                id = ids[j];
+                defaultSignature = defaultSignatures[i++];
+                signature = signatures[j++];
+            }
+            if (!StringUtils.equals(defaultSignature, signature) && isChecked(defaultFile, id) && isChecked(file, id)) {
+                if (violations == null) {
+                    violations = context.getViolationSink(getClass());
+                }
+                violations.add(bundle, locale, "Placeholders of value '" + bundle.getKeyDictionary().getKey(id) +
+                        "' for the locale '" + locale + "' are " +
+                        StringUtils.defaultString(signature, NO_PLACEHOLDER) + " instead of " +
+                        StringUtils.defaultString(defaultSignature, NO_PLACEHOLDER));
+            }
+        }
+    }
+
+    /**
+     * Is the value of a key checked? Missing keys and blank values are reported by other rules
+     * @param file Bundle file
+     * @param id Key ID
+     * @return TRUE if checked
+     */
+    private static boolean isChecked(BundleFile file, int id) {
+        return file.getKeyIds().get(id) && !file.getBlankValueKeyIds().get(id);
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        // placeholders are checked at the file level
+    }
+
+    @Override
+    public Collection<Flag> getFlags() {
+        return ImmutableList.of(Flag.UsesKeys, Flag.UsesPlaceholders);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+}
@@ -1,31 +1,56 @@
 package fr.gimmick.sonar.l10n.rules;
 
-import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
 import org.sonar.api.rules.Rule;
 
 import java.util.Collection;
+import java.util.Locale;
 
 /**
- * Localization rule
+ * Localization rule, checked by the rule engine while it walks the bundle project
  * @author Mickaël Tricot
  */
 public interface L10nRule {
 
     /** Flags indicating which information needs to be retrieved in order to check the violations */
     enum Flag {
+        /** Need the bundle files only (names and locales), not their content */
+        UsesFiles,
         /** Need to process the bundle keys */
         UsesKeys,
         /** Need to process the bundle values */
-        UsesValues
+        UsesValues,
+        /** Need the placeholder signatures of the bundle values */
+        UsesPlaceholders,
+        /** Need the hashes of the bundle values */
+        UsesValueHashes,
+        /** Need the usages of the keys in the source code */
+        UsesSources
     }
 
     /**
-     * Check the violations
-     * @param project Bundle project
+     * Check the violations of a bundle, before its files are visited
+     * @param bundle Bundle
      * @param context Localization context
      */
-    void checkViolations(BundleProject project, L10nContext context);
+    void visitBundle(Bundle bundle, L10nContext context);
+
+    /**
+     * Check the violations of a bundle file
+     * @param bundle Bundle
+     * @param locale Locale (nullable)
+     * @param file Bundle file
+     * @param context Localization context
+     */
+    void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context);
+
+    /**
+     * Check the violations of the whole project, once all the bundles have been visited
+     * @param context Localization context
+     */
+    void visitProject(L10nContext context);
 
     /**
      * Flags getter
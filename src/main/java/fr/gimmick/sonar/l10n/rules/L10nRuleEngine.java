@@ -0,0 +1,90 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+/**
+ * Rule engine: walks the bundles once, and dispatches each bundle and each of its files to all the rules, then the
+ * whole project, timing each rule
+ * @author Mickaël Tricot
+ */
+public final class L10nRuleEngine {
+
+    /** Localization context */
+    private final L10nContext context;
+
+    /** Rules to check */
+    private final List<L10nRule> rules;
+
+    /** Names of the rule times, in the order of the rules */
+    private final String[] timeNames;
+
+    /**
+     * Constructor
+     * @param rules Rules to check
+     * @param context Localization context
+     */
+    public L10nRuleEngine(Collection<L10nRule> rules, L10nContext context) {
+        this.rules = ImmutableList.copyOf(rules);
+        this.context = context;
+        timeNames = new String[this.rules.size()];
+        for (int i = 0; i < timeNames.length; i++) {
+            timeNames[i] = L10nStatistics.getRuleName(L10nUtils.getRuleKey(this.rules.get(i).getClass()), null);
+        }
+    }
+
+    /**
+     * Check the violations of a bundle and its files
+     * @param bundle Bundle
+     */
+    public void visit(Bundle bundle) {
+        long[] times = new long[rules.size()];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            rules.get(i).visitBundle(bundle, context);
+            times[i] += System.nanoTime() - start;
+        }
+        for (Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
+            for (int i = 0; i < times.length; i++) {
+                long start = System.nanoTime();
+                rules.get(i).visitFile(bundle, file.getKey(), file.getValue(), context);
+                times[i] += System.nanoTime() - start;
+            }
+        }
+        for (int i = 0; i < times.length; i++) {
+            context.getStatistics().addTime(timeNames[i], times[i]);
+        }
+    }
+
+    /**
+     * Check the violations of the whole project, once all its bundles have been visited
+     */
+    public void finish() {
+        for (int i = 0; i < timeNames.length; i++) {
+            long start = System.nanoTime();
+            rules.get(i).visitProject(context);
+            context.getStatistics().addTime(timeNames[i], System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Check the violations of all the bundles of a project, then of the whole project
+     * @param project Bundle project
+     */
+    public void walk(BundleProject project) {
+        for (Bundle bundle : project.getBundles().values()) {
+            visit(bundle);
+        }
+        finish();
+    }
+}
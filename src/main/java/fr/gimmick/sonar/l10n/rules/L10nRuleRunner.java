@@ -0,0 +1,113 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runner for the localization rules: all the rules are checked in a single walk of the bundle project, or each rule
+ * is checked in its own walk when the rules are checked concurrently
+ * @author Mickaël Tricot
+ */
+public final class L10nRuleRunner {
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(L10nRuleRunner.class);
+
+    /** Name format for the threads checking the rules */
+    private static final String THREAD_NAME_FORMAT = "l10n-rule-runner-%d";
+
+    /**
+     * Check the violations of the rules
+     * @param rules Rules to check
+     * @param project Bundle project
+     * @param context Localization context, with deferred violations if the rules are checked concurrently
+     * @param threads Number of threads for checking the rules
+     */
+    public static void run(Collection<L10nRule> rules, BundleProject project, L10nContext context, int threads) {
+        if (isParallel(rules, threads)) {
+            runParallel(rules, project, context, Math.min(threads, rules.size()));
+        } else {
+            LOG.debug("Checking {} rules in a single walk", rules.size());
+            new L10nRuleEngine(rules, context).walk(project);
+            context.flush();
+        }
+    }
+
+    /**
+     * Are the rules checked concurrently? If so, the violations must be deferred until all the rules are checked.
+     * @param rules Rules to check
+     * @param threads Number of threads for checking the rules
+     * @return TRUE if the rules are checked concurrently
+     */
+    public static boolean isParallel(Collection<L10nRule> rules, int threads) {
+        return threads > 1 && rules.size() > 1;
+    }
+
+    /**
+     * Check the violations of the rules concurrently, one walk per rule. The rules only read the bundle project, and
+     * each of them adds its violations to its own sink: the violations are saved afterwards, on the calling thread, in
+     * the order of the rules.
+     * @param rules Rules to check
+     * @param project Bundle project
+     * @param context Localization context, with deferred violations
+     * @param threads Number of threads for checking the rules
+     */
+    private static void runParallel(Collection<L10nRule> rules, final BundleProject project,
+            final L10nContext context, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_FORMAT).setDaemon(true).build());
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(rules.size());
+            for (final L10nRule rule : rules) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        LOG.debug("Checking rule '{}'", rule.getRule().getKey());
+                        new L10nRuleEngine(Collections.singletonList(rule), context).walk(project);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                waitFor(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        context.flush();
+    }
+
+    /**
+     * Wait for a rule to be checked
+     * @param future Rule check future
+     */
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while checking the rules", e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new IllegalStateException("Error while checking the rules", e.getCause());
+        }
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private L10nRuleRunner() {
+    }
+}
@@ -1,20 +1,20 @@
 package fr.gimmick.sonar.l10n.rules;
 
-import fr.gimmick.sonar.l10n.L10nConfiguration;
+import com.google.common.collect.ImmutableList;
 import fr.gimmick.sonar.l10n.L10nPlugin;
 import fr.gimmick.sonar.l10n.model.Bundle;
-import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.BundleFile;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
 import org.apache.commons.lang3.StringUtils;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
-import org.sonar.api.rules.Violation;
 import org.sonar.check.Cardinality;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Locale;
 
 /**
@@ -36,25 +36,56 @@ public final class MissingBundleRule implements L10nRule {
         rule.setDescription("Localization bundle that is expected to be available");
     }
 
+    /**
+     * Does a bundle have a file for a fallback locale of a locale? (fr_CA -&gt; fr -&gt; null)
+     * @param bundle Bundle
+     * @param locale Locale (nullable)
+     * @return TRUE if a fallback file exists
+     */
+    private static boolean hasFallbackFile(Bundle bundle, Locale locale) {
+        Locale fallback = locale;
+        while (fallback != null) {
+            fallback = L10nUtils.getFallbackLocale(fallback);
+            if (bundle.getFiles().containsKey(fallback)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
-    public void checkViolations(BundleProject project, L10nContext context) {
-        for (Bundle bundle : project.getBundles().values()) {
-            Collection<Locale> missingLocales = new HashSet<Locale>(context.getLocales());
-            missingLocales.removeAll(bundle.getFiles().keySet());
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        Collection<Locale> missingLocales = new HashSet<Locale>(context.getLocales());
+        missingLocales.removeAll(bundle.getFiles().keySet());
+        if (context.isLocaleFallback()) {
+            for (Iterator<Locale> iterator = missingLocales.iterator(); iterator.hasNext(); ) {
+                if (hasFallbackFile(bundle, iterator.next())) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (!missingLocales.isEmpty()) {
+            ViolationSink violations = context.getViolationSink(getClass());
             for (Locale locale : missingLocales) {
-                Violation violation = Violation
-                        .create(L10nConfiguration.getActiveRule(context.getRulesProfile(), getClass()),
-                                L10nUtils.getResource(context.getProject(), bundle, locale));
-                violation.setMessage("Bundle '" + bundle.getId().getName() + "' is missing" +
+                violations.add(bundle, locale, "Bundle '" + bundle.getId().getName() + "' is missing" +
                         (locale != null ? " for the locale '" + locale + '\'' : StringUtils.EMPTY));
-                context.getSensorContext().saveViolation(violation);
             }
         }
     }
 
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        // missing bundles are checked at the bundle level
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        // missing bundles are checked at the bundle level
+    }
+
     @Override
     public Collection<Flag> getFlags() {
-        return Collections.emptyList();
+        return ImmutableList.of(Flag.UsesFiles);
     }
 
     @Override
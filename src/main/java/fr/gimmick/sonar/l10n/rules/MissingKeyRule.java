@@ -1,24 +1,21 @@
 package fr.gimmick.sonar.l10n.rules;
 
 import com.google.common.collect.ImmutableList;
-import fr.gimmick.sonar.l10n.L10nConfiguration;
 import fr.gimmick.sonar.l10n.L10nPlugin;
 import fr.gimmick.sonar.l10n.model.Bundle;
 import fr.gimmick.sonar.l10n.model.BundleFile;
-import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
+import fr.gimmick.sonar.l10n.model.KeyDictionary;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
 import org.apache.commons.lang3.StringUtils;
-import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
-import org.sonar.api.rules.Violation;
 import org.sonar.check.Cardinality;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map.Entry;
 
 /**
  * Missing key localization rule
@@ -40,29 +37,31 @@ public final class MissingKeyRule implements L10nRule {
     }
 
     @Override
-    public void checkViolations(BundleProject project, L10nContext context) {
-        for (Bundle bundle : project.getBundles().values()) {
-            for (Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
-                if (context.getLocales().contains(file.getKey())) {
-                    Collection<String> missingKeys = new HashSet<String>(bundle.getKeys());
-                    missingKeys.removeAll(file.getValue().getProperties().keySet());
-                    if (!missingKeys.isEmpty()) {
-                        Resource<?> resource = L10nUtils.getResource(context.getProject(), bundle, file.getKey());
-                        for (String key : missingKeys) {
-                            Violation violation = Violation
-                                    .create(L10nConfiguration.getActiveRule(context.getRulesProfile(), getClass()),
-                                            resource);
-                            violation.setMessage("Key '" + key + "' is not translated" +
-                                    (file.getKey() != null ? " for the locale '" + file.getKey() + '\'' :
-                                            StringUtils.EMPTY));
-                            context.getSensorContext().saveViolation(violation);
-                        }
-                    }
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        // missing keys are checked at the file level
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        if (context.getLocales().contains(locale)) {
+            KeyBitSet keyIds = context.isLocaleFallback() ? bundle.getFallbackKeyIds(locale) : file.getKeyIds();
+            int id = bundle.getKeyIds().nextSetBitAndNot(keyIds, 0);
+            if (id >= 0) {
+                ViolationSink violations = context.getViolationSink(getClass());
+                KeyDictionary dictionary = bundle.getKeyDictionary();
+                for (; id >= 0; id = bundle.getKeyIds().nextSetBitAndNot(keyIds, id + 1)) {
+                    violations.add(bundle, locale, "Key '" + dictionary.getKey(id) + "' is not translated" +
+                            (locale != null ? " for the locale '" + locale + '\'' : StringUtils.EMPTY));
                 }
             }
         }
     }
 
+    @Override
+    public void visitProject(L10nContext context) {
+        // missing keys are checked at the file level
+    }
+
     @Override
     public Collection<Flag> getFlags() {
         return ImmutableList.of(Flag.UsesKeys);
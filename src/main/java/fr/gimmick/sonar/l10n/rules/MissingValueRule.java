@@ -1,24 +1,20 @@
 package fr.gimmick.sonar.l10n.rules;
 
 import com.google.common.collect.ImmutableList;
-import fr.gimmick.sonar.l10n.L10nConfiguration;
 import fr.gimmick.sonar.l10n.L10nPlugin;
 import fr.gimmick.sonar.l10n.model.Bundle;
 import fr.gimmick.sonar.l10n.model.BundleFile;
-import fr.gimmick.sonar.l10n.model.BundleProject;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
 import org.apache.commons.lang3.StringUtils;
-import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
-import org.sonar.api.rules.Violation;
 import org.sonar.check.Cardinality;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map.Entry;
 
 /**
  * Missing value localization rule
@@ -40,33 +36,27 @@ public final class MissingValueRule implements L10nRule {
     }
 
     @Override
-    public void checkViolations(BundleProject project, L10nContext context) {
-        for (Bundle bundle : project.getBundles().values()) {
-            for (Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
-                if (context.getLocales().contains(file.getKey())) {
-                    Collection<String> missingValues = new HashSet<String>();
-                    for (Entry<String, String> property : file.getValue().getProperties().entrySet()) {
-                        if (StringUtils.trimToNull(property.getValue()) == null) {
-                            missingValues.add(property.getKey());
-                        }
-                    }
-                    if (!missingValues.isEmpty()) {
-                        Resource<?> resource = L10nUtils.getResource(context.getProject(), bundle, file.getKey());
-                        for (String value : missingValues) {
-                            Violation violation = Violation
-                                    .create(L10nConfiguration.getActiveRule(context.getRulesProfile(), getClass()),
-                                            resource);
-                            violation.setMessage("Value '" + value + "' is missing" +
-                                    (file.getKey() != null ? " for the locale '" + file.getKey() + '\'' :
-                                            StringUtils.EMPTY));
-                            context.getSensorContext().saveViolation(violation);
-                        }
-                    }
-                }
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        // missing values are checked at the file level
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        KeyBitSet missingValues = file.getBlankValueKeyIds();
+        if (!missingValues.isEmpty() && context.getLocales().contains(locale)) {
+            ViolationSink violations = context.getViolationSink(getClass());
+            for (int id = missingValues.nextSetBit(0); id >= 0; id = missingValues.nextSetBit(id + 1)) {
+                violations.add(bundle, locale, "Value '" + bundle.getKeyDictionary().getKey(id) + "' is missing" +
+                        (locale != null ? " for the locale '" + locale + '\'' : StringUtils.EMPTY));
             }
         }
     }
 
+    @Override
+    public void visitProject(L10nContext context) {
+        // missing values are checked at the file level
+    }
+
     @Override
     public Collection<Flag> getFlags() {
         return ImmutableList.of(Flag.UsesKeys, Flag.UsesValues);
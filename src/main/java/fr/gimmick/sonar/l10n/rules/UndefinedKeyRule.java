@@ -0,0 +1,68 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.L10nPlugin;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.KeyUsages;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.check.Cardinality;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Undefined key localization rule
+ * @author Mickaël Tricot
+ */
+public final class UndefinedKeyRule implements L10nRule {
+
+    /** Sonar rule */
+    private final Rule rule;
+
+    /** Constructor */
+    public UndefinedKeyRule() {
+        rule = Rule.create();
+        rule.setUniqueKey(L10nPlugin.KEY, L10nUtils.getRuleKey(getClass()));
+        rule.setName("Undefined L10n key");
+        rule.setCardinality(Cardinality.MULTIPLE);
+        rule.setSeverity(RulePriority.MAJOR);
+        rule.setDescription("Localization key used in the source code, but not defined in any bundle");
+    }
+
+    @Override
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        // undefined keys are checked at the project level
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        // undefined keys are checked at the project level
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        KeyUsages keyUsages = context.getKeyUsages();
+        if (keyUsages != null) {
+            ViolationSink violations = context.getViolationSink(getClass());
+            for (KeyUsages.Reference reference : keyUsages.getUndefinedKeys()) {
+                violations.add(reference.getFile(), reference.getLine(),
+                        "Key '" + reference.getKey() + "' is not defined in any bundle");
+            }
+        }
+    }
+
+    @Override
+    public Collection<Flag> getFlags() {
+        return ImmutableList.of(Flag.UsesKeys, Flag.UsesSources);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+}
@@ -0,0 +1,275 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.L10nPlugin;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.PropertiesParser;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.check.Cardinality;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Untranslated value localization rule: the value of a key is the same as in the default bundle file (without
+ * locale). The values are compared from their hashes, computed while parsing; the files are only read again to
+ * compare the values with the same hash.
+ * @author Mickaël Tricot
+ */
+public final class UntranslatedValueRule implements L10nRule {
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(UntranslatedValueRule.class);
+
+    /** Parameter for the keys whose values may be the same as in the default bundle file */
+    public static final String PARAMETER_ALLOWED_KEYS = "allowedKeys";
+
+    /** Wildcard of the allowed keys */
+    private static final char WILDCARD = '*';
+
+    /** Compiled allowed keys: parameter value -> pattern */
+    private final ConcurrentMap<String, Pattern> allowedKeys = new ConcurrentHashMap<String, Pattern>();
+
+    /** Sonar rule */
+    private final Rule rule;
+
+    /** Constructor */
+    public UntranslatedValueRule() {
+        rule = Rule.create();
+        rule.setUniqueKey(L10nPlugin.KEY, L10nUtils.getRuleKey(getClass()));
+        rule.setName("Untranslated L10n value");
+        rule.setCardinality(Cardinality.MULTIPLE);
+        rule.setSeverity(RulePriority.MAJOR);
+        rule.setDescription("Localization value that is the same as in the default bundle (values without any " +
+                "letter are ignored)");
+        rule.createParameter(PARAMETER_ALLOWED_KEYS).setType("STRING").setDescription("Comma-separated list of " +
+                "the keys whose values may be the same as in the default bundle ('*' matches any characters)");
+    }
+
+    /**
+     * Compile the allowed keys
+     * @param parameter Comma-separated list of keys, with wildcards
+     * @return Pattern (matching nothing if there is no key)
+     */
+    private static Pattern compile(String parameter) {
+        StringBuilder regex = new StringBuilder();
+        for (String allowedKey : StringUtils.split(parameter, ',')) {
+            String trimmed = allowedKey.trim();
+            if (!trimmed.isEmpty()) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                int literal = 0;
+                for (int i = trimmed.indexOf(WILDCARD); i >= 0; i = trimmed.indexOf(WILDCARD, literal)) {
+                    if (literal < i) {
+                        regex.append(Pattern.quote(trimmed.substring(literal, i)));
+                    }
+                    regex.append(".*");
+                    literal = i + 1;
+                }
+                if (literal < trimmed.length()) {
+                    regex.append(Pattern.quote(trimmed.substring(literal)));
+                }
+            }
+        }
+        return Pattern.compile(regex.length() > 0 ? regex.toString() : "(?!)");
+    }
+
+    /**
+     * Get the keys whose values may be the same as in the default bundle file
+     * @param context Localization context
+     * @return Pattern of the allowed keys (null if none)
+     */
+    private Pattern getAllowedKeys(L10nContext context) {
+        String parameter = StringUtils.trimToNull(context.getActiveRules().getParameter(getClass(),
+                PARAMETER_ALLOWED_KEYS));
+        if (parameter == null) {
+            return null;
+        }
+        Pattern pattern = allowedKeys.get(parameter);
+        if (pattern == null) {
+            pattern = compile(parameter);
+            allowedKeys.putIfAbsent(parameter, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Get the IDs of the keys whose value has the same hash as in the default bundle file. Both files have their value
+     * hashes in the order of their key IDs: they are merged.
+     * @param defaultFile Default bundle file
+     * @param file Bundle file
+     * @return Key IDs (empty if none)
+     */
+    private static List<Integer> getSameHashKeyIds(BundleFile defaultFile, BundleFile file) {
+        List<Integer> ids = Collections.emptyList();
+        KeyBitSet defaultKeyIds = defaultFile.getKeyIds();
+        long[] defaultHashes = defaultFile.getValueHashes();
+        long[] hashes = file.getValueHashes();
+        int defaultId = defaultKeyIds.nextSetBit(0);
+        int defaultIndex = 0;
+        int index = 0;
+        for (int id = file.getKeyIds().nextSetBit(0); id >= 0 && index < hashes.length;
+             id = file.getKeyIds().nextSetBit(id + 1), index++) {
+            while (defaultId >= 0 && defaultId < id) {
+                defaultId = defaultKeyIds.nextSetBit(defaultId + 1);
+                defaultIndex++;
+            }
+            if (defaultId == id && defaultIndex < defaultHashes.length &&
+                    hashes[index] == defaultHashes[defaultIndex] && !file.getBlankValueKeyIds().get(id) &&
+                    !defaultFile.getBlankValueKeyIds().get(id)) {
+                if (ids.isEmpty()) {
+                    ids = new ArrayList<Integer>();
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Does a value have a letter? Values without any letter (numbers, punctuation...) need no translation
+     * @param value Value
+     * @return TRUE if it has a letter
+     */
+    private static boolean hasLetter(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isLetter(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read some values of a bundle file again
+     * @param file File
+     * @param keys Keys of the values to read
+     * @return Values: key -> value (null if the file cannot be read)
+     */
+    private static Map<String, String> readValues(File file, final Set<String> keys) {
+        final Map<String, String> values = new HashMap<String, String>();
+        InputStream is = null;
+        try {
+            is = FileUtils.openInputStream(file);
+            PropertiesParser.parse(is, true, KeyPrefixMatcher.compile(Collections.<String>emptyList()),
+                    new PropertiesParser.Handler() {
+                        @Override
+                        public void property(String key, char[] value, int offset, int length) {
+                            if (keys.contains(key)) {
+                                values.put(key, new String(value, offset, length));
+                            }
+                        }
+                    });
+            return values;
+        } catch (IOException e) {
+            LOG.warn("Cannot read the values of file '" + file + "' again, not checking them", e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    @Override
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        BundleFile defaultFile = bundle.getFiles().get(null);
+        if (defaultFile == null) {
+            return;
+        }
+        // keys with the same value hash, for each locale
+        Pattern allowed = getAllowedKeys(context);
+        Map<Locale, List<Integer>> sameHashKeyIds = new LinkedHashMap<Locale, List<Integer>>();
+        Set<String> sameHashKeys = new HashSet<String>();
+        for (Map.Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
+            if (file.getKey() != null && context.getLocales().contains(file.getKey())) {
+                List<Integer> ids = getSameHashKeyIds(defaultFile, file.getValue());
+                if (!ids.isEmpty()) {
+                    List<Integer> checkedIds = new ArrayList<Integer>(ids.size());
+                    for (Integer id : ids) {
+                        String key = bundle.getKeyDictionary().getKey(id);
+                        if (allowed == null || !allowed.matcher(key).matches()) {
+                            checkedIds.add(id);
+                            sameHashKeys.add(key);
+                        }
+                    }
+                    if (!checkedIds.isEmpty()) {
+                        sameHashKeyIds.put(file.getKey(), checkedIds);
+                    }
+                }
+            }
+        }
+        if (sameHashKeys.isEmpty()) {
+            return;
+        }
+
+        // same hashes: compare the values themselves
+        Map<String, String> defaultValues = readValues(L10nUtils.getFile(bundle, null), sameHashKeys);
+        if (defaultValues == null) {
+            return;
+        }
+        ViolationSink violations = context.getViolationSink(getClass());
+        for (Map.Entry<Locale, List<Integer>> ids : sameHashKeyIds.entrySet()) {
+            Set<String> keys = new HashSet<String>(ids.getValue().size());
+            for (Integer id : ids.getValue()) {
+                keys.add(bundle.getKeyDictionary().getKey(id));
+            }
+            Map<String, String> values = readValues(L10nUtils.getFile(bundle, ids.getKey()), keys);
+            if (values != null) {
+                for (Integer id : ids.getValue()) {
+                    String key = bundle.getKeyDictionary().getKey(id);
+                    String value = values.get(key);
+                    if (value != null && value.equals(defaultValues.get(key)) && hasLetter(value)) {
+                        violations.add(bundle, ids.getKey(), "Value of key '" + key + "' for the locale '" +
+                                ids.getKey() + "' is not translated (same as the default bundle)");
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        // untranslated values are checked at the bundle level, to read the default bundle file at most once
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        // untranslated values are checked at the bundle level
+    }
+
+    @Override
+    public Collection<Flag> getFlags() {
+        return ImmutableList.of(Flag.UsesKeys, Flag.UsesValueHashes);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+}
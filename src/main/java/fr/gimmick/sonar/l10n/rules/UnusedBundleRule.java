@@ -1,17 +1,15 @@
 package fr.gimmick.sonar.l10n.rules;
 
 import com.google.common.collect.ImmutableList;
-import fr.gimmick.sonar.l10n.L10nConfiguration;
 import fr.gimmick.sonar.l10n.L10nPlugin;
 import fr.gimmick.sonar.l10n.model.Bundle;
 import fr.gimmick.sonar.l10n.model.BundleFile;
-import fr.gimmick.sonar.l10n.model.BundleProject;
 import fr.gimmick.sonar.l10n.utils.L10nContext;
 import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
 import org.apache.commons.lang3.StringUtils;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
-import org.sonar.api.rules.Violation;
 import org.sonar.check.Cardinality;
 
 import java.util.Collection;
@@ -39,33 +37,35 @@ public final class UnusedBundleRule implements L10nRule {
     }
 
     @Override
-    public void checkViolations(BundleProject project, L10nContext context) {
-        for (Bundle bundle : project.getBundles().values()) {
-            if (bundle.getKeys().isEmpty()) {
-                for (Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
-                    if (!file.getValue().isAllKeysExcluded()) {
-                        Violation violation = Violation
-                                .create(L10nConfiguration.getActiveRule(context.getRulesProfile(), getClass()),
-                                        L10nUtils.getResource(context.getProject(), bundle, file.getKey()));
-                        violation.setMessage("Bundle '" + bundle.getId().getName() + "' is empty for all locales");
-                        context.getSensorContext().saveViolation(violation);
-                    }
-                }
-            } else {
-                Collection<Locale> unusedLocales = new HashSet<Locale>(bundle.getFiles().keySet());
-                unusedLocales.removeAll(context.getLocales());
-                for (Locale locale : unusedLocales) {
-                    Violation violation = Violation
-                            .create(L10nConfiguration.getActiveRule(context.getRulesProfile(), getClass()),
-                                    L10nUtils.getResource(context.getProject(), bundle, locale));
-                    violation.setMessage("Bundle '" + bundle.getId().getName() + "' is unused" +
-                            (locale != null ? " for the locale '" + locale + '\'' : StringUtils.EMPTY));
-                    context.getSensorContext().saveViolation(violation);
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        ViolationSink violations = context.getViolationSink(getClass());
+        if (bundle.getKeys().isEmpty()) {
+            for (Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
+                if (!file.getValue().isAllKeysExcluded()) {
+                    violations.add(bundle, file.getKey(),
+                            "Bundle '" + bundle.getId().getName() + "' is empty for all locales");
                 }
             }
+        } else {
+            Collection<Locale> unusedLocales = new HashSet<Locale>(bundle.getFiles().keySet());
+            unusedLocales.removeAll(context.getLocales());
+            for (Locale locale : unusedLocales) {
+                violations.add(bundle, locale, "Bundle '" + bundle.getId().getName() + "' is unused" +
+                        (locale != null ? " for the locale '" + locale + '\'' : StringUtils.EMPTY));
+            }
         }
     }
 
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        // unused bundles are checked at the bundle level
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        // unused bundles are checked at the bundle level
+    }
+
     @Override
     public Collection<Flag> getFlags() {
         return ImmutableList.of(Flag.UsesKeys);
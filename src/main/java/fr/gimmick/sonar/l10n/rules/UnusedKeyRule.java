@@ -0,0 +1,94 @@
+package fr.gimmick.sonar.l10n.rules;
+
+import com.google.common.collect.ImmutableList;
+import fr.gimmick.sonar.l10n.L10nPlugin;
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
+import fr.gimmick.sonar.l10n.model.KeyBitSet;
+import fr.gimmick.sonar.l10n.model.KeyDictionary;
+import fr.gimmick.sonar.l10n.model.KeyUsages;
+import fr.gimmick.sonar.l10n.utils.L10nContext;
+import fr.gimmick.sonar.l10n.utils.L10nUtils;
+import fr.gimmick.sonar.l10n.utils.ViolationSink;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.check.Cardinality;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Unused key localization rule
+ * @author Mickaël Tricot
+ */
+public final class UnusedKeyRule implements L10nRule {
+
+    /** Sonar rule */
+    private final Rule rule;
+
+    /** Constructor */
+    public UnusedKeyRule() {
+        rule = Rule.create();
+        rule.setUniqueKey(L10nPlugin.KEY, L10nUtils.getRuleKey(getClass()));
+        rule.setName("Unused L10n key");
+        rule.setCardinality(Cardinality.MULTIPLE);
+        rule.setSeverity(RulePriority.MINOR);
+        rule.setDescription("Localization key that is not used in the source code");
+    }
+
+    /**
+     * Get the locale of the file to report an unused key on: the default file if it has the key, else the first file
+     * having it
+     * @param bundle Bundle
+     * @param id Key ID
+     * @return Locale (nullable)
+     */
+    private static Locale getLocale(Bundle bundle, int id) {
+        BundleFile defaultFile = bundle.getFiles().get(null);
+        if (defaultFile == null || !defaultFile.getKeyIds().get(id)) {
+            for (Map.Entry<Locale, BundleFile> file : bundle.getFiles().entrySet()) {
+                if (file.getValue().getKeyIds().get(id)) {
+                    return file.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void visitBundle(Bundle bundle, L10nContext context) {
+        KeyUsages keyUsages = context.getKeyUsages();
+        if (keyUsages != null) {
+            ViolationSink violations = context.getViolationSink(getClass());
+            KeyDictionary dictionary = bundle.getKeyDictionary();
+            KeyBitSet keyIds = bundle.getKeyIds();
+            for (int id = keyIds.nextSetBit(0); id >= 0; id = keyIds.nextSetBit(id + 1)) {
+                String key = dictionary.getKey(id);
+                if (!keyUsages.isUsed(key)) {
+                    violations.add(bundle, getLocale(bundle, id), "Key '" + key + "' is not used in the source code");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void visitFile(Bundle bundle, Locale locale, BundleFile file, L10nContext context) {
+        // unused keys are checked at the bundle level
+    }
+
+    @Override
+    public void visitProject(L10nContext context) {
+        // unused keys are checked at the bundle level
+    }
+
+    @Override
+    public Collection<Flag> getFlags() {
+        return ImmutableList.of(Flag.UsesKeys, Flag.UsesSources);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+}
@@ -0,0 +1,56 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Checksum;
+
+/**
+ * Byte buffer utils, for memory-mapped files
+ * @author Mickaël Tricot
+ */
+public final class BufferUtils {
+
+    /** Size of the chunks copied from a buffer to compute its checksum */
+    private static final int CHECKSUM_CHUNK_SIZE = 8192;
+
+    /**
+     * Memory-map a file. The mapping stays valid after the channel is closed, and is released when the buffer is
+     * garbage collected.
+     * @param file File
+     * @return Read-only buffer with the file content
+     * @throws IOException Error while mapping the file
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            IOUtils.closeQuietly(randomAccessFile);
+        }
+    }
+
+    /**
+     * Update a checksum with the content of a buffer, from its position to its limit (not modified)
+     * @param checksum Checksum
+     * @param buffer Buffer
+     */
+    public static void update(Checksum checksum, ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate();
+        byte[] chunk = new byte[CHECKSUM_CHUNK_SIZE];
+        while (input.hasRemaining()) {
+            int length = Math.min(chunk.length, input.remaining());
+            input.get(chunk, 0, length);
+            checksum.update(chunk, 0, length);
+        }
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private BufferUtils() {
+    }
+}
@@ -0,0 +1,114 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bundles affected by a change: the bundles of the changed (or deleted) files. All the files of these bundles, changed
+ * or not, are to be analysed, so that the rules comparing the locales of a bundle remain correct.
+ * @author Mickaël Tricot
+ */
+public final class ChangedBundles implements Predicate<File> {
+
+    /** Bundle names, by canonical directory path */
+    private final Map<String, Set<String>> bundles;
+
+    /** Canonical path of the last directory of a file tested (files of a directory are tested consecutively) */
+    private String lastCanonicalDirectory;
+
+    /** Last directory of a file tested */
+    private String lastDirectory;
+
+    /**
+     * Constructor
+     * @param changedFiles Changed (or deleted) files
+     * @param extension Extension of the bundle files (other files are ignored)
+     */
+    public ChangedBundles(Collection<File> changedFiles, String extension) {
+        bundles = new HashMap<String, Set<String>>();
+        for (File changedFile : changedFiles) {
+            String name = getBundleName(changedFile);
+            if (FilenameUtils.isExtension(changedFile.getName(), extension) && name != null) {
+                String directory = getCanonicalPath(changedFile.getAbsoluteFile().getParentFile());
+                Set<String> names = bundles.get(directory);
+                if (names == null) {
+                    names = new HashSet<String>();
+                    bundles.put(directory, names);
+                }
+                names.add(name);
+            }
+        }
+    }
+
+    /**
+     * Get the bundle name of a file
+     * @param file File
+     * @return Bundle name (nullable)
+     */
+    private static String getBundleName(File file) {
+        String fileBaseName = FilenameUtils.getBaseName(file.getName());
+        return StringUtils.isEmpty(fileBaseName) ? null :
+                StringUtils.trimToNull(L10nUtils.splitFileName(fileBaseName)[0]);
+    }
+
+    /**
+     * Get the canonical path of a file, or its absolute path if it cannot be resolved
+     * @param file File
+     * @return Path
+     */
+    private static String getCanonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException ignored) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Is a file part of a bundle affected by the change? Not thread-safe.
+     * @param file File
+     * @return TRUE if its bundle is affected
+     */
+    @Override
+    public boolean apply(File file) {
+        String directory = file.getParent();
+        if (!StringUtils.equals(directory, lastDirectory)) {
+            lastDirectory = directory;
+            lastCanonicalDirectory = getCanonicalPath(file.getAbsoluteFile().getParentFile());
+        }
+        Set<String> names = bundles.get(lastCanonicalDirectory);
+        return names != null && names.contains(getBundleName(file));
+    }
+
+    /**
+     * Keep the files of the bundles affected by the change, as they are iterated
+     * @param files Files
+     * @return Files of the bundles affected by the change
+     */
+    public Iterable<File> filter(Iterable<File> files) {
+        return Iterables.filter(files, this);
+    }
+
+    /**
+     * Is no bundle affected by the change?
+     * @return TRUE if empty
+     */
+    public boolean isEmpty() {
+        return bundles.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return bundles.toString();
+    }
+}
@@ -0,0 +1,303 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Scanner for the files of some directories, with given extensions. The files are discovered lazily while iterating,
+ * so that they can be processed as soon as they are found. Directories matching an excluded pattern are not walked
+ * into, and a directory reachable from several source directories (overlapping directories, symbolic links) is only
+ * walked once. The files of a directory are consecutive.
+ * @author Mickaël Tricot
+ */
+public final class FileScanner implements Iterable<File> {
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(FileScanner.class);
+
+    /** Glob pattern suffix for any subdirectory */
+    private static final String ANY_SUBDIRECTORY = "/**";
+
+    /** Directory path separator in the patterns */
+    private static final char SEPARATOR = '/';
+
+    /** Source directories */
+    private final Collection<File> directories;
+
+    /** Patterns of the directories not to walk into */
+    private final Collection<Pattern> excludedDirectories;
+
+    /** File extensions, with their leading dot */
+    private final String[] extensions;
+
+    /** Patterns of the directories to take the files from (all if empty) */
+    private final Collection<Pattern> includedDirectories;
+
+    /**
+     * Constructor
+     * @param directories Source directories
+     * @param extension File extension (without leading dot)
+     * @param includedDirectories Glob patterns of the directories to take the files from (all if empty)
+     * @param excludedDirectories Glob patterns of the directories not to walk into
+     */
+    public FileScanner(Collection<File> directories, String extension, Collection<String> includedDirectories,
+            Collection<String> excludedDirectories) {
+        this(directories, Collections.singleton(extension), includedDirectories, excludedDirectories);
+    }
+
+    /**
+     * Constructor
+     * @param directories Source directories
+     * @param extensions File extensions (without leading dot)
+     * @param includedDirectories Glob patterns of the directories to take the files from (all if empty)
+     * @param excludedDirectories Glob patterns of the directories not to walk into
+     */
+    public FileScanner(Collection<File> directories, Collection<String> extensions,
+            Collection<String> includedDirectories, Collection<String> excludedDirectories) {
+        this.directories = new ArrayList<File>(directories);
+        this.extensions = new String[extensions.size()];
+        int i = 0;
+        for (String extension : extensions) {
+            this.extensions[i++] = '.' + extension;
+        }
+        this.includedDirectories = compile(includedDirectories);
+        this.excludedDirectories = compile(excludedDirectories);
+    }
+
+    /**
+     * Compile glob patterns
+     * @param globs Glob patterns
+     * @return Regular expressions
+     */
+    private static Collection<Pattern> compile(Collection<String> globs) {
+        Collection<Pattern> patterns = new ArrayList<Pattern>(globs.size());
+        for (String glob : globs) {
+            patterns.add(compileGlob(glob));
+        }
+        return Collections.unmodifiableCollection(patterns);
+    }
+
+    /**
+     * Compile a glob pattern on a directory path, relative to its source directory and separated with '/':
+     * <ul>
+     * <li>'*' matches any characters within a directory name</li>
+     * <li>'?' matches one character within a directory name</li>
+     * <li>'**' matches any number of directories ('a/**' also matches 'a', '**&#47;a' also matches 'a')</li>
+     * </ul>
+     * @param glob Glob pattern
+     * @return Regular expression
+     */
+    static Pattern compileGlob(String glob) {
+        String body = glob;
+        String suffix = "";
+        if (glob.endsWith(ANY_SUBDIRECTORY)) {
+            body = glob.substring(0, glob.length() - ANY_SUBDIRECTORY.length());
+            suffix = "(?:/.*)?";
+        }
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal < i) {
+                    regex.append(Pattern.quote(body.substring(literal, i)));
+                }
+                if (c == '?') {
+                    regex.append("[^/]");
+                } else if (i + 1 < body.length() && body.charAt(i + 1) == '*') {
+                    i++;
+                    if (i + 1 < body.length() && body.charAt(i + 1) == SEPARATOR) {
+                        i++;
+                        regex.append("(?:.*/)?");
+                    } else {
+                        regex.append(".*");
+                    }
+                } else {
+                    regex.append("[^/]*");
+                }
+                literal = i + 1;
+            }
+        }
+        if (literal < body.length()) {
+            regex.append(Pattern.quote(body.substring(literal)));
+        }
+        return Pattern.compile(regex.append(suffix).toString());
+    }
+
+    /**
+     * Get the canonical path of a directory
+     * @param directory Directory
+     * @return Canonical path (or absolute path if it cannot be resolved)
+     */
+    private static String getCanonicalPath(File directory) {
+        try {
+            return directory.getCanonicalPath();
+        } catch (IOException e) {
+            LOG.debug("Cannot resolve the canonical path of '{}'", directory);
+            return directory.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Does a path match one of the patterns?
+     * @param patterns Patterns
+     * @param path Path
+     * @return TRUE if matching
+     */
+    private static boolean matches(Collection<Pattern> patterns, String path) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Does a file name have one of the extensions?
+     * @param name File name
+     * @return TRUE if matching
+     */
+    private boolean hasExtension(String name) {
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<File> iterator() {
+        return new ScanIterator();
+    }
+
+    /** Directory to walk, with its path relative to its source directory */
+    private static final class PendingDirectory {
+
+        /** Directory */
+        private final File directory;
+
+        /** Relative path ('/' separated, empty for a source directory) */
+        private final String path;
+
+        /**
+         * Constructor
+         * @param directory Directory
+         * @param path Relative path
+         */
+        PendingDirectory(File directory, String path) {
+            this.directory = directory;
+            this.path = path;
+        }
+    }
+
+    /** Iterator walking the directories (depth-first, sorted by name) as the files are consumed */
+    private final class ScanIterator implements Iterator<File> {
+
+        /** Files found, not consumed yet */
+        private final Deque<File> files = new ArrayDeque<File>();
+
+        /** Directories to walk */
+        private final Deque<PendingDirectory> pendingDirectories = new ArrayDeque<PendingDirectory>();
+
+        /** Source directories not walked yet */
+        private final Iterator<File> sourceDirectories = directories.iterator();
+
+        /** Canonical paths of the directories already walked */
+        private final Set<String> walkedDirectories = new HashSet<String>();
+
+        /** Number of files found */
+        private int count;
+
+        /** Have all the directories been walked? */
+        private boolean finished;
+
+        @Override
+        public boolean hasNext() {
+            while (files.isEmpty()) {
+                if (!pendingDirectories.isEmpty()) {
+                    walk(pendingDirectories.pop());
+                } else if (sourceDirectories.hasNext()) {
+                    File directory = sourceDirectories.next();
+                    if (walkedDirectories.add(getCanonicalPath(directory))) {
+                        pendingDirectories.push(new PendingDirectory(directory, ""));
+                    } else {
+                        LOG.debug("Directory '{}' already walked", directory);
+                    }
+                } else {
+                    if (!finished) {
+                        finished = true;
+                        LOG.info("{} *{} files found in {}",
+                                new Object[]{count, StringUtils.join(extensions, ", *"), directories});
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files.poll();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Walk a directory: keep its files, and schedule its subdirectories
+         * @param pending Directory to walk
+         */
+        private void walk(PendingDirectory pending) {
+            File[] children = pending.directory.listFiles();
+            if (children == null) {
+                LOG.debug("Cannot list the directory '{}'", pending.directory);
+                return;
+            }
+            Arrays.sort(children);
+            boolean included = includedDirectories.isEmpty() || matches(includedDirectories, pending.path);
+            List<PendingDirectory> subdirectories = new ArrayList<PendingDirectory>();
+            for (File child : children) {
+                if (hasExtension(child.getName()) && child.isFile()) {
+                    if (included) {
+                        files.add(child);
+                        count++;
+                    }
+                } else if (child.isDirectory()) {
+                    String path = pending.path.length() == 0 ? child.getName() :
+                            pending.path + SEPARATOR + child.getName();
+                    if (matches(excludedDirectories, path)) {
+                        LOG.debug("Directory '{}' excluded", child);
+                    } else if (walkedDirectories.add(getCanonicalPath(child))) {
+                        subdirectories.add(new PendingDirectory(child, path));
+                    }
+                }
+            }
+            for (int i = subdirectories.size() - 1; i >= 0; i--) {
+                pendingDirectories.push(subdirectories.get(i));
+            }
+        }
+    }
+}
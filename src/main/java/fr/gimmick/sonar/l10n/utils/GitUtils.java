@@ -0,0 +1,120 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Git utils: read the changes of the local working tree, with the git command line (no network access)
+ * @author Mickaël Tricot
+ */
+public final class GitUtils {
+
+    /** Git command */
+    private static final String GIT = "git";
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(GitUtils.class);
+
+    /** Name of the threads reading the standard error of git */
+    private static final String ERROR_READER_NAME = "l10n-git-error-reader";
+
+    /** Separator of the paths output with the -z option */
+    private static final char PATH_SEPARATOR = '\0';
+
+    /**
+     * Get the files changed since the merge base of a commit and HEAD: committed, staged, unstaged and untracked
+     * (not ignored) files, including the deleted ones
+     * @param directory Directory of the working tree
+     * @param base Base commit (branch, tag, commit...)
+     * @return Changed files
+     * @throws IOException Error while running git
+     */
+    public static Collection<File> getChangedFiles(File directory, String base) throws IOException {
+        File root = new File(StringUtils.trim(run(directory, "rev-parse", "--show-toplevel")));
+        String mergeBase = StringUtils.trim(run(directory, "merge-base", base, "HEAD"));
+        LOG.debug("Git root '{}', merge base of '{}' and HEAD: {}", new Object[]{root, base, mergeBase});
+        Collection<File> changedFiles = new ArrayList<File>();
+        for (String path : StringUtils.split(run(root, "diff", "--name-only", "--no-renames", "-z", mergeBase),
+                PATH_SEPARATOR)) {
+            changedFiles.add(new File(root, path));
+        }
+        for (String path : StringUtils.split(run(root, "ls-files", "--others", "--exclude-standard", "-z"),
+                PATH_SEPARATOR)) {
+            changedFiles.add(new File(root, path));
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Read the standard error of a process on a dedicated thread, so that the process never blocks on a full pipe
+     * while its standard output is read
+     * @param process Process
+     * @param error Standard error, available once the thread has been joined
+     * @return Started thread
+     */
+    private static Thread readError(final Process process, final StringBuilder error) {
+        Thread errorReader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    error.append(IOUtils.toString(process.getErrorStream(), "UTF-8"));
+                } catch (IOException e) {
+                    LOG.debug("Cannot read the standard error of git", e);
+                }
+            }
+        }, ERROR_READER_NAME);
+        errorReader.setDaemon(true);
+        errorReader.start();
+        return errorReader;
+    }
+
+    /**
+     * Run a git command, without taking the optional locks (such as the index refresh lock). Its standard output and
+     * standard error are read concurrently: they are not merged, as the warnings would corrupt the output.
+     * @param directory Working directory
+     * @param arguments Git arguments
+     * @return Standard output
+     * @throws IOException Error while running git, or git failed
+     */
+    private static String run(File directory, String... arguments) throws IOException {
+        List<String> command = new ArrayList<String>(arguments.length + 1);
+        command.add(GIT);
+        command.addAll(Arrays.asList(arguments));
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(directory);
+        processBuilder.environment().put("GIT_OPTIONAL_LOCKS", "0");
+        Process process = processBuilder.start();
+        try {
+            process.getOutputStream().close();
+            StringBuilder error = new StringBuilder();
+            Thread errorReader = readError(process, error);
+            String output = IOUtils.toString(process.getInputStream(), "UTF-8");
+            int exitValue = process.waitFor();
+            errorReader.join();
+            if (exitValue != 0) {
+                throw new IOException("Command " + command + " failed (" + exitValue + "): " +
+                        StringUtils.trim(error.toString()));
+            }
+            return output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running " + command, e);
+        } finally {
+            IOUtils.closeQuietly(process.getInputStream());
+            IOUtils.closeQuietly(process.getErrorStream());
+            process.destroy();
+        }
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private GitUtils() {
+    }
+}
@@ -0,0 +1,302 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matcher for many keys at once in a stream of bytes, compiled into an Aho-Corasick automaton over the UTF-8 bytes of
+ * the keys: a stream is matched in a single pass, in a time proportional to its length (plus the number of matches),
+ * whatever the number of keys. The automaton is immutable, so it can be used concurrently.
+ * @author Mickaël Tricot
+ */
+public final class KeyMatcher {
+
+    /** Root state */
+    public static final int ROOT = 0;
+
+    /** Maximum number of states: a state and a byte are packed into an int */
+    private static final int MAX_STATES = 1 << 24;
+
+    /** No state */
+    private static final int NONE = -1;
+
+    /** Key encoding */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Failure state of each state: state of the longest proper suffix that is also a key prefix */
+    private final int[] failures;
+
+    /** Byte length of each key */
+    private final int[] lengths;
+
+    /** Key matched by each state (NONE if no key ends at the state) */
+    private final int[] matches;
+
+    /** First state matching a key along the failure states of each state, itself included (NONE if none) */
+    private final int[] outputs;
+
+    /** Transitions */
+    private final Transitions transitions;
+
+    /**
+     * Constructor
+     * @param transitions Transitions
+     * @param failures Failure state of each state
+     * @param matches Key matched by each state
+     * @param outputs First state matching a key along the failure states of each state
+     * @param lengths Byte length of each key
+     */
+    private KeyMatcher(Transitions transitions, int[] failures, int[] matches, int[] outputs, int[] lengths) {
+        this.transitions = transitions;
+        this.failures = failures;
+        this.matches = matches;
+        this.outputs = outputs;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Compile keys
+     * @param keys Keys, identified by their index (empty keys are never matched)
+     * @return Matcher
+     * @throws IllegalArgumentException Too many keys
+     */
+    public static KeyMatcher compile(List<String> keys) {
+        byte[][] encodedKeys = new byte[keys.size()][];
+        long byteCount = 0;
+        for (int i = 0; i < encodedKeys.length; i++) {
+            encodedKeys[i] = keys.get(i).getBytes(UTF_8);
+            byteCount += encodedKeys[i].length;
+        }
+        if (byteCount >= MAX_STATES) {
+            throw new IllegalArgumentException("Too many keys to match: " + byteCount + " bytes");
+        }
+
+        // trie, keeping the parent, the label, the depth and the key of each state
+        Transitions transitions = new Transitions();
+        int[] parents = new int[(int) byteCount + 1];
+        byte[] labels = new byte[parents.length];
+        int[] depths = new int[parents.length];
+        int[] matches = new int[parents.length];
+        int[] lengths = new int[encodedKeys.length];
+        Arrays.fill(matches, NONE);
+        int states = 1;
+        for (int i = 0; i < encodedKeys.length; i++) {
+            lengths[i] = encodedKeys[i].length;
+            int state = ROOT;
+            for (byte b : encodedKeys[i]) {
+                int child = transitions.get(state, b);
+                if (child == ROOT) {
+                    child = states++;
+                    transitions.put(state, b, child);
+                    parents[child] = state;
+                    labels[child] = b;
+                    depths[child] = depths[state] + 1;
+                }
+                state = child;
+            }
+            if (state != ROOT) {
+                matches[state] = i;
+            }
+        }
+
+        // failure and output states, breadth first (the failure state of a state is not as deep)
+        int[] failures = new int[states];
+        int[] outputs = new int[states];
+        for (int state : sortByDepth(depths, states)) {
+            int failure = ROOT;
+            if (parents[state] != ROOT) {
+                failure = next(transitions, failures, failures[parents[state]], labels[state]);
+            }
+            failures[state] = failure;
+            outputs[state] = matches[state] != NONE ? state : state == ROOT ? NONE : outputs[failure];
+        }
+        return new KeyMatcher(transitions, failures, Arrays.copyOf(matches, states), outputs, lengths);
+    }
+
+    /**
+     * Sort the states by depth (counting sort)
+     * @param depths Depth of each state
+     * @param states Number of states
+     * @return States, sorted by depth
+     */
+    private static int[] sortByDepth(int[] depths, int states) {
+        int maxDepth = 0;
+        for (int i = 0; i < states; i++) {
+            maxDepth = Math.max(maxDepth, depths[i]);
+        }
+        int[] starts = new int[maxDepth + 2];
+        for (int i = 0; i < states; i++) {
+            starts[depths[i] + 1]++;
+        }
+        for (int depth = 1; depth < starts.length; depth++) {
+            starts[depth] += starts[depth - 1];
+        }
+        int[] sorted = new int[states];
+        for (int i = 0; i < states; i++) {
+            sorted[starts[depths[i]]++] = i;
+        }
+        return sorted;
+    }
+
+    /**
+     * Get the next state, following the failure states until a transition exists
+     * @param transitions Transitions
+     * @param failures Failure state of each state
+     * @param state Current state
+     * @param b Next byte
+     * @return Next state
+     */
+    private static int next(Transitions transitions, int[] failures, int state, byte b) {
+        for (int current = state; ; current = failures[current]) {
+            int child = transitions.get(current, b);
+            if (child != ROOT || current == ROOT) {
+                return child;
+            }
+        }
+    }
+
+    /**
+     * Get the next state
+     * @param state Current state
+     * @param b Next byte
+     * @return Next state
+     */
+    public int next(int state, byte b) {
+        return next(transitions, failures, state, b);
+    }
+
+    /**
+     * Get the first state matching a key, among a state and its failure states
+     * @param state State
+     * @return Matching state (negative if no key matches)
+     */
+    public int getMatchState(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * Get the next state matching a key, among the failure states of a matching state
+     * @param matchState Matching state
+     * @return Matching state (negative if no other key matches)
+     */
+    public int getNextMatchState(int matchState) {
+        return outputs[failures[matchState]];
+    }
+
+    /**
+     * Get the key matched by a matching state
+     * @param matchState Matching state
+     * @return Key index
+     */
+    public int getKey(int matchState) {
+        return matches[matchState];
+    }
+
+    /**
+     * Get the byte length of a key
+     * @param key Key index
+     * @return Byte length
+     */
+    public int getKeyLength(int key) {
+        return lengths[key];
+    }
+
+    /**
+     * Get the number of keys
+     * @return Number of keys
+     */
+    public int size() {
+        return lengths.length;
+    }
+
+    /**
+     * Transitions of the automaton: the transitions of the root state, the most used ones, are kept in a dense array;
+     * the others in an open-addressing hash table of longs ((state &lt;&lt; 8 | byte) &lt;&lt; 32 | child state, 0
+     * if empty), so that hundreds of thousands of keys fit in a few compact arrays
+     */
+    private static final class Transitions {
+
+        /** Initial capacity of the hash table */
+        private static final int INITIAL_CAPACITY = 1024;
+
+        /** Transitions of the root state, by byte (ROOT if none) */
+        private final int[] root = new int[256];
+
+        /** Number of transitions in the hash table */
+        private int size;
+
+        /** Hash table */
+        private long[] table = new long[INITIAL_CAPACITY];
+
+        /**
+         * Get the first slot to probe for a transition
+         * @param transition State and byte
+         * @param mask Mask of the table indexes
+         * @return Slot index
+         */
+        private static int getIndex(int transition, int mask) {
+            int hash = transition * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+
+        /**
+         * Get the child of a state
+         * @param state State
+         * @param b Byte
+         * @return Child state (ROOT if none)
+         */
+        int get(int state, byte b) {
+            if (state == ROOT) {
+                return root[b & 0xFF];
+            }
+            int transition = state << 8 | b & 0xFF;
+            int mask = table.length - 1;
+            for (int i = getIndex(transition, mask); ; i = i + 1 & mask) {
+                long entry = table[i];
+                if (entry == 0L) {
+                    return ROOT;
+                }
+                if ((int) (entry >>> 32) == transition) {
+                    return (int) entry;
+                }
+            }
+        }
+
+        /**
+         * Add a child to a state (not already there)
+         * @param state State
+         * @param b Byte
+         * @param child Child state
+         */
+        void put(int state, byte b, int child) {
+            if (state == ROOT) {
+                root[b & 0xFF] = child;
+                return;
+            }
+            if (++size > table.length / 2) {
+                long[] oldTable = table;
+                table = new long[oldTable.length * 2];
+                for (long entry : oldTable) {
+                    if (entry != 0L) {
+                        insert(entry);
+                    }
+                }
+            }
+            insert((long) (state << 8 | b & 0xFF) << 32 | child);
+        }
+
+        /**
+         * Insert an entry in the hash table
+         * @param entry Entry
+         */
+        private void insert(long entry) {
+            int mask = table.length - 1;
+            int i = getIndex((int) (entry >>> 32), mask);
+            while (table[i] != 0L) {
+                i = i + 1 & mask;
+            }
+            table[i] = entry;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Matcher for key prefixes, compiled into a prefix trie: a key is matched in a time proportional to its length,
+ * whatever the number of prefixes
+ * @author Mickaël Tricot
+ */
+public final class KeyPrefixMatcher {
+
+    /** Matcher without any prefix */
+    private static final KeyPrefixMatcher EMPTY = new KeyPrefixMatcher(Collections.<String>emptySet(), new Node());
+
+    /** Prefixes */
+    private final Collection<String> prefixes;
+
+    /** Trie root */
+    private final Node root;
+
+    /**
+     * Constructor
+     * @param prefixes Prefixes
+     * @param root Trie root
+     */
+    private KeyPrefixMatcher(Collection<String> prefixes, Node root) {
+        this.prefixes = prefixes;
+        this.root = root;
+    }
+
+    /**
+     * Compile key prefixes
+     * @param prefixes Key prefixes
+     * @return Matcher
+     */
+    public static KeyPrefixMatcher compile(Collection<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return EMPTY;
+        }
+        Node root = new Node();
+        for (String prefix : prefixes) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && !node.terminal; i++) {
+                node = node.getOrAddChild(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+        return new KeyPrefixMatcher(Collections.unmodifiableCollection(new HashSet<String>(prefixes)), root);
+    }
+
+    /**
+     * Prefixes getter
+     * @return Prefixes
+     */
+    public Collection<String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * Is there no prefix?
+     * @return TRUE if there is no prefix (nothing matches)
+     */
+    public boolean isEmpty() {
+        return prefixes.isEmpty();
+    }
+
+    /**
+     * Does the key start with one of the prefixes?
+     * @param key Key
+     * @return TRUE if matching
+     */
+    public boolean matches(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && !node.terminal; i++) {
+            node = node.getChild(key.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    /**
+     * Does the key start with one of the prefixes?
+     * @param key Key characters
+     * @param offset Key offset
+     * @param length Key length
+     * @return TRUE if matching
+     */
+    public boolean matches(char[] key, int offset, int length) {
+        Node node = root;
+        for (int i = offset; i < offset + length && !node.terminal; i++) {
+            node = node.getChild(key[i]);
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    @Override
+    public String toString() {
+        return prefixes.toString();
+    }
+
+    /** Trie node */
+    private static final class Node {
+
+        /** Children, sorted as the labels */
+        private Node[] children = new Node[0];
+
+        /** Sorted labels of the children */
+        private char[] labels = new char[0];
+
+        /** Is a prefix ending at this node? */
+        private boolean terminal;
+
+        /**
+         * Get a child
+         * @param label Child label
+         * @return Child (nullable)
+         */
+        Node getChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * Get a child, or add it if it does not exist
+         * @param label Child label
+         * @return Child
+         */
+        Node getOrAddChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            newLabels[index] = label;
+            newChildren[index] = new Node();
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[index];
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import fr.gimmick.sonar.l10n.L10nConfiguration;
+import fr.gimmick.sonar.l10n.rules.L10nRule;
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.ActiveRuleParam;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Active localization rules, resolved once from the Sonar rules profile at the beginning of the analysis: rules,
+ * Sonar active rules, parameters and flags
+ * @author Mickaël Tricot
+ */
+public final class L10nActiveRules {
+
+    /** Sonar active rules: rule class -> active rule */
+    private final Map<Class<? extends L10nRule>, ActiveRule> activeRules;
+
+    /** Flags of all the active rules */
+    private final Set<Flag> flags;
+
+    /** Parameters: rule class -> parameter key -> parameter value */
+    private final Map<Class<? extends L10nRule>, Map<String, String>> parameters;
+
+    /** Active rules */
+    private final List<L10nRule> rules;
+
+    /**
+     * Constructor
+     * @param rules Active rules
+     * @param activeRules Sonar active rules
+     * @param parameters Parameters
+     * @param flags Flags
+     */
+    private L10nActiveRules(List<L10nRule> rules, Map<Class<? extends L10nRule>, ActiveRule> activeRules,
+            Map<Class<? extends L10nRule>, Map<String, String>> parameters, Set<Flag> flags) {
+        this.rules = rules;
+        this.activeRules = activeRules;
+        this.parameters = parameters;
+        this.flags = flags;
+    }
+
+    /**
+     * Resolve the active rules
+     * @param profile Sonar rules profile
+     * @param rules Localization rules
+     * @return Active rules
+     */
+    public static L10nActiveRules resolve(RulesProfile profile, Collection<L10nRule> rules) {
+        ImmutableList.Builder<L10nRule> activeL10nRules = ImmutableList.builder();
+        ImmutableMap.Builder<Class<? extends L10nRule>, ActiveRule> activeRules = ImmutableMap.builder();
+        ImmutableMap.Builder<Class<? extends L10nRule>, Map<String, String>> parameters = ImmutableMap.builder();
+        Set<Flag> flags = EnumSet.noneOf(Flag.class);
+        for (L10nRule rule : rules) {
+            ActiveRule activeRule = L10nConfiguration.getActiveRule(profile, rule.getClass());
+            if (activeRule != null) {
+                activeL10nRules.add(rule);
+                activeRules.put(rule.getClass(), activeRule);
+                parameters.put(rule.getClass(), getParameters(activeRule));
+                flags.addAll(rule.getFlags());
+            }
+        }
+        return new L10nActiveRules(activeL10nRules.build(), activeRules.build(), parameters.build(),
+                Sets.immutableEnumSet(flags));
+    }
+
+    /**
+     * Get the parameters of an active rule
+     * @param activeRule Sonar active rule
+     * @return Parameters: key -> value
+     */
+    private static Map<String, String> getParameters(ActiveRule activeRule) {
+        ImmutableMap.Builder<String, String> parameters = ImmutableMap.builder();
+        if (activeRule.getActiveRuleParams() != null) {
+            for (ActiveRuleParam parameter : activeRule.getActiveRuleParams()) {
+                if (parameter.getKey() != null && parameter.getValue() != null) {
+                    parameters.put(parameter.getKey(), parameter.getValue());
+                }
+            }
+        }
+        return parameters.build();
+    }
+
+    /**
+     * Get the Sonar active rule
+     * @param ruleClass Localization rule class
+     * @return Active rule (nullable)
+     */
+    public ActiveRule getActiveRule(Class<? extends L10nRule> ruleClass) {
+        return activeRules.get(ruleClass);
+    }
+
+    /**
+     * Flags getter
+     * @return Flags of all the active rules
+     */
+    public Set<Flag> getFlags() {
+        return flags;
+    }
+
+    /**
+     * Get a parameter of an active rule
+     * @param ruleClass Localization rule class
+     * @param key Parameter key
+     * @return Parameter value (nullable)
+     */
+    public String getParameter(Class<? extends L10nRule> ruleClass, String key) {
+        Map<String, String> ruleParameters = parameters.get(ruleClass);
+        return ruleParameters != null ? ruleParameters.get(key) : null;
+    }
+
+    /**
+     * Rules getter
+     * @return Active rules
+     */
+    public List<L10nRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Is the localization rule active?
+     * @param ruleClass Localization rule class
+     * @return TRUE if the rule is active
+     */
+    public boolean isActive(Class<? extends L10nRule> ruleClass) {
+        return activeRules.containsKey(ruleClass);
+    }
+
+    /**
+     * Is there no active rule?
+     * @return TRUE if no rule is active
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return activeRules.keySet().toString();
+    }
+}
@@ -2,10 +2,13 @@ package fr.gimmick.sonar.l10n.utils;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
+import fr.gimmick.sonar.l10n.model.KeyUsages;
+import fr.gimmick.sonar.l10n.rules.L10nRule;
 import org.sonar.api.batch.SensorContext;
-import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
 
 /**
@@ -14,31 +17,84 @@ import org.sonar.api.resources.Project;
  */
 public final class L10nContext {
 
+    /** Active rules */
+    private final L10nActiveRules activeRules;
+
+    /** Usages of the keys in the source code (nullable) */
+    private final KeyUsages keyUsages;
+
+    /** Follow the fallback locales? */
+    private final boolean localeFallback;
+
     /** Locales to check */
     private final Collection<Locale> locales;
 
     /** Sonar project */
     private final Project project;
 
-    /** Sonar rules profile */
-    private final RulesProfile rulesProfile;
-
     /** Sonar sensor context */
     private final SensorContext sensorContext;
 
+    /** Analysis statistics */
+    private final L10nStatistics statistics;
+
+    /** Violation sinks, in the order of the rules: rule class -> sink */
+    private final Map<Class<? extends L10nRule>, ViolationSink> violationSinks;
+
     /**
      * Constructor
      * @param sensorContext Sensor context
      * @param locales Locales
-     * @param rulesProfile Rules profile
+     * @param localeFallback Follow the fallback locales?
+     * @param activeRules Active rules
      * @param project Project
+     * @param maxViolationsPerResource Maximum number of violations per resource (0 for no limit)
+     * @param deferViolations Keep all the violations until the context is flushed (for rules checked concurrently)
+     * @param statistics Analysis statistics
+     * @param keyUsages Usages of the keys in the source code (nullable, if no active rule uses them)
      */
-    public L10nContext(SensorContext sensorContext, Collection<Locale> locales, RulesProfile rulesProfile,
-            Project project) {
+    public L10nContext(SensorContext sensorContext, Collection<Locale> locales, boolean localeFallback,
+            L10nActiveRules activeRules, Project project, int maxViolationsPerResource, boolean deferViolations,
+            L10nStatistics statistics, KeyUsages keyUsages) {
         this.sensorContext = sensorContext;
+        this.statistics = statistics;
+        this.keyUsages = keyUsages;
         this.locales = Collections.unmodifiableCollection(locales);
-        this.rulesProfile = rulesProfile;
+        this.localeFallback = localeFallback;
+        this.activeRules = activeRules;
         this.project = project;
+        Map<Class<? extends L10nRule>, ViolationSink> sinks =
+                new LinkedHashMap<Class<? extends L10nRule>, ViolationSink>();
+        for (L10nRule rule : activeRules.getRules()) {
+            sinks.put(rule.getClass(), new ViolationSink(activeRules.getActiveRule(rule.getClass()), project,
+                    sensorContext, maxViolationsPerResource, deferViolations, statistics));
+        }
+        violationSinks = Collections.unmodifiableMap(sinks);
+    }
+
+    /**
+     * Save the pending violations of all the rules, in the order of the rules
+     */
+    public void flush() {
+        for (ViolationSink violationSink : violationSinks.values()) {
+            violationSink.flush();
+        }
+    }
+
+    /**
+     * Active rules getter
+     * @return Active rules
+     */
+    public L10nActiveRules getActiveRules() {
+        return activeRules;
+    }
+
+    /**
+     * Key usages getter
+     * @return Usages of the keys in the source code (nullable)
+     */
+    public KeyUsages getKeyUsages() {
+        return keyUsages;
     }
 
     /**
@@ -50,19 +106,19 @@ public final class L10nContext {
     }
 
     /**
-     * Project getter
-     * @return Project
+     * Locale fallback getter
+     * @return TRUE if the fallback locales are followed (fr_CA -&gt; fr -&gt; null)
      */
-    public Project getProject() {
-        return project;
+    public boolean isLocaleFallback() {
+        return localeFallback;
     }
 
     /**
-     * Rules profile getter
-     * @return Rules profile
+     * Project getter
+     * @return Project
      */
-    public RulesProfile getRulesProfile() {
-        return rulesProfile;
+    public Project getProject() {
+        return project;
     }
 
     /**
@@ -72,4 +128,25 @@ public final class L10nContext {
     public SensorContext getSensorContext() {
         return sensorContext;
     }
-}
\ No newline at end of file
+
+    /**
+     * Statistics getter
+     * @return Analysis statistics
+     */
+    public L10nStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the violation sink of a rule
+     * @param ruleClass Localization rule class
+     * @return Violation sink
+     */
+    public ViolationSink getViolationSink(Class<? extends L10nRule> ruleClass) {
+        ViolationSink violationSink = violationSinks.get(ruleClass);
+        if (violationSink == null) {
+            throw new IllegalArgumentException("Inactive rule: " + ruleClass.getName());
+        }
+        return violationSink;
+    }
+}
@@ -0,0 +1,297 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of an analysis: times (in ns) and counters, by name, in the order of their first update. They can be
+ * updated concurrently, without locking; the hot paths should resolve their values once (see counter and time).
+ * @author Mickaël Tricot
+ */
+public final class L10nStatistics {
+
+    /** Counter: bytes allocated by the analysis thread (when supported by the JVM) */
+    public static final String ALLOCATED_BYTES = "allocatedBytes";
+
+    /** Counter: bundles built */
+    public static final String BUNDLES = "bundles";
+
+    /** Counter: bytes of the files parsed */
+    public static final String BYTES = "bytes";
+
+    /** Counter: files retrieved from the cache */
+    public static final String CACHED_FILES = "cachedFiles";
+
+    /** Counter: violations dropped because of the limit per resource */
+    public static final String DROPPED_VIOLATIONS = "droppedViolations";
+
+    /** Counter: keys excluded */
+    public static final String EXCLUDED_KEYS = "excludedKeys";
+
+    /** Counter: files processed */
+    public static final String FILES = "files";
+
+    /** Counter: keys parsed (not excluded) */
+    public static final String KEYS = "keys";
+
+    /**
+     * Counter: bytes allocated by the threads parsing the files, over the whole build: the calling thread for a
+     * sequential build, the parsing threads (and the discovery thread if pipelined) otherwise (when supported by the
+     * JVM)
+     */
+    public static final String PARSING_ALLOCATED_BYTES = "parsing.allocatedBytes";
+
+    /** Counter: bytes of the source files scanned for key usages */
+    public static final String SOURCE_BYTES = "sourceBytes";
+
+    /** Counter: source files scanned for key usages */
+    public static final String SOURCES = "sources";
+
+    /** Prefix of the counters and times of a rule */
+    public static final String RULE_PREFIX = "rule.";
+
+    /** Counter: violations saved */
+    public static final String VIOLATIONS = "violations";
+
+    /** Time: whole analysis */
+    public static final String ANALYSIS = "analysis";
+
+    /** Time: bundle project build (wall time, including the discovery and the parsing, and the rules if pipelined) */
+    public static final String BUILD = "build";
+
+    /** Time: file discovery */
+    public static final String DISCOVERY = "discovery";
+
+    /** Time: file parsing and key exclusion (cumulated over the threads) */
+    public static final String PARSING = "parsing";
+
+    /** Time: key usage scan of the source files (wall time) */
+    public static final String SCAN = "scan";
+
+    /** Time: violation saving */
+    public static final String SAVING = "saving";
+
+    /** Time: bundle project snapshot loading and saving */
+    public static final String SNAPSHOT = "snapshot";
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(L10nStatistics.class);
+
+    /** Thread management bean */
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /** com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), if supported by the JVM (nullable) */
+    private static final Method THREAD_ALLOCATED_BYTES = getThreadAllocatedBytesMethod();
+
+    /** Counters: name -> value */
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+    /** Counter names, in the order of their first update */
+    private final Queue<String> counterNames = new ConcurrentLinkedQueue<String>();
+
+    /** Times: name -> nanoseconds */
+    private final ConcurrentMap<String, AtomicLong> times = new ConcurrentHashMap<String, AtomicLong>();
+
+    /** Time names, in the order of their first update */
+    private final Queue<String> timeNames = new ConcurrentLinkedQueue<String>();
+
+    /**
+     * Get the bytes allocated so far by the current thread
+     * @return Allocated bytes, or -1 if not supported by the JVM
+     */
+    public static long getAllocatedBytes() {
+        return getAllocatedBytes(Thread.currentThread());
+    }
+
+    /**
+     * Get the bytes allocated so far by a thread
+     * @param thread Thread (alive)
+     * @return Allocated bytes, or -1 if not supported by the JVM or if the thread is not alive
+     */
+    public static long getAllocatedBytes(Thread thread) {
+        if (THREAD_ALLOCATED_BYTES != null) {
+            try {
+                return (Long) THREAD_ALLOCATED_BYTES.invoke(THREAD_MX_BEAN, thread.getId());
+            } catch (Exception ignored) {
+                // not supported after all
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the name of the counters and times of a rule
+     * @param ruleKey Rule key
+     * @param name Counter or time name (nullable, for the time of the rule checks)
+     * @return Name
+     */
+    public static String getRuleName(String ruleKey, String name) {
+        return name == null ? RULE_PREFIX + ruleKey : RULE_PREFIX + ruleKey + '.' + name;
+    }
+
+    /**
+     * Look up com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), if supported by the JVM
+     * @return Method (nullable)
+     */
+    private static Method getThreadAllocatedBytesMethod() {
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(THREAD_MX_BEAN)) {
+                Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+                method.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+                return method;
+            }
+        } catch (Exception ignored) {
+            LOG.debug("Thread allocation counters not supported");
+        }
+        return null;
+    }
+
+    /**
+     * Get a value, created on first use
+     * @param values Values
+     * @param names Value names, in the order of their creation
+     * @param name Name
+     * @return Value
+     */
+    private static AtomicLong get(ConcurrentMap<String, AtomicLong> values, Queue<String> names, String name) {
+        AtomicLong value = values.get(name);
+        if (value == null) {
+            AtomicLong created = new AtomicLong();
+            value = values.putIfAbsent(name, created);
+            if (value == null) {
+                names.add(name);
+                value = created;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Get a counter, to be updated directly by the hot paths
+     * @param name Counter name
+     * @return Counter
+     */
+    public AtomicLong counter(String name) {
+        return get(counters, counterNames, name);
+    }
+
+    /**
+     * Get a time, to be updated directly by the hot paths
+     * @param name Time name
+     * @return Time (in ns)
+     */
+    public AtomicLong time(String name) {
+        return get(times, timeNames, name);
+    }
+
+    /**
+     * Add to a counter
+     * @param name Counter name
+     * @param value Value to add
+     */
+    public void add(String name, long value) {
+        counter(name).addAndGet(value);
+    }
+
+    /**
+     * Add to a time
+     * @param name Time name
+     * @param nanos Time to add (in ns)
+     */
+    public void addTime(String name, long nanos) {
+        time(name).addAndGet(nanos);
+    }
+
+    /**
+     * Get a counter
+     * @param name Counter name
+     * @return Value (0 if never updated)
+     */
+    public long getCounter(String name) {
+        return counter(name).get();
+    }
+
+    /**
+     * Get a time
+     * @param name Time name
+     * @return Time (in ms, 0 if never updated)
+     */
+    public long getTime(String name) {
+        return TimeUnit.NANOSECONDS.toMillis(time(name).get());
+    }
+
+    /**
+     * Log the statistics, as a single line of name=value pairs (times in ms)
+     */
+    public void log() {
+        LOG.info("Statistics: {}", this);
+    }
+
+    /**
+     * Time the iteration of files (hasNext and next calls)
+     * @param name Time name
+     * @param iterable Iterable
+     * @param <T> Element type
+     * @return Timed iterable
+     */
+    public <T> Iterable<T> timed(final String name, final Iterable<T> iterable) {
+        final AtomicLong time = time(name);
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final Iterator<T> iterator = iterable.iterator();
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        long start = System.nanoTime();
+                        try {
+                            return iterator.hasNext();
+                        } finally {
+                            time.addAndGet(System.nanoTime() - start);
+                        }
+                    }
+
+                    @Override
+                    public T next() {
+                        long start = System.nanoTime();
+                        try {
+                            return iterator.next();
+                        } finally {
+                            time.addAndGet(System.nanoTime() - start);
+                        }
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (String name : timeNames) {
+            builder.append(name).append(".ms=").append(TimeUnit.NANOSECONDS.toMillis(times.get(name).get()))
+                    .append(' ');
+        }
+        for (String name : counterNames) {
+            builder.append(name).append('=').append(counters.get(name).get()).append(' ');
+        }
+        return builder.toString().trim();
+    }
+}
@@ -2,6 +2,7 @@ package fr.gimmick.sonar.l10n.utils;
 
 import fr.gimmick.sonar.l10n.L10nConfiguration;
 import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleFile;
 import fr.gimmick.sonar.l10n.rules.L10nRule;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Transformer;
@@ -16,12 +17,8 @@ import org.sonar.api.resources.Resource;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Properties;
 
 /**
  * Localization utils
@@ -57,6 +54,20 @@ public final class L10nUtils {
         return Collections.unmodifiableCollection(csv);
     }
 
+    /**
+     * Split a file base name into the bundle name and the locale suffix, on the first name/locale separator (same as
+     * a regular expression split with a limit of 2, without the regular expression)
+     * @param fileBaseName File base name
+     * @return Bundle name, and locale suffix if any
+     */
+    public static String[] splitFileName(String fileBaseName) {
+        int separator = fileBaseName.indexOf(FILENAME_NAME_LOCALE_SEPARATOR);
+        if (separator < 0) {
+            return new String[]{fileBaseName};
+        }
+        return new String[]{fileBaseName.substring(0, separator), fileBaseName.substring(separator + 1)};
+    }
+
     /**
      * Get the Sonar resource for a bundle and a locale
      * @param project Sonar project
@@ -65,40 +76,78 @@ public final class L10nUtils {
      * @return Sonar resource
      */
     public static Resource<?> getResource(Project project, Bundle bundle, Locale locale) {
+        return new File(Java.INSTANCE,
+                bundle.getId().getDirectory().getRelativePath(project.getFileSystem().getBasedir()),
+                getFileName(bundle, locale));
+    }
+
+    /**
+     * Get the properties file of a bundle and a locale, as discovered
+     * @param bundle Bundle
+     * @param locale Locale (nullable) of a file of the bundle
+     * @return File
+     */
+    public static java.io.File getFile(Bundle bundle, Locale locale) {
+        return new java.io.File(bundle.getId().getDirectory().getPath(), bundle.getFiles().get(locale).getFileName());
+    }
+
+    /**
+     * Get the properties file name of a bundle and a locale: the discovered name if the bundle has a file for the
+     * locale, otherwise the name built from the locale
+     * @param bundle Bundle
+     * @param locale Locale (nullable)
+     * @return File name
+     */
+    private static String getFileName(Bundle bundle, Locale locale) {
+        BundleFile bundleFile = bundle.getFiles().get(locale);
+        if (bundleFile != null) {
+            return bundleFile.getFileName();
+        }
         StringBuilder builder = new StringBuilder(bundle.getId().getName());
         if (locale != null) {
             builder.append(FILENAME_NAME_LOCALE_SEPARATOR).append(locale.toString());
         }
-        String filename =
-                builder.append(FilenameUtils.EXTENSION_SEPARATOR).append(L10nConfiguration.FILE_EXTENSION).toString();
-        return new File(Java.INSTANCE,
-                bundle.getId().getDirectory().substring(project.getFileSystem().getBasedir().getPath().length() + 1),
-                filename);
+        return builder.append(FilenameUtils.EXTENSION_SEPARATOR).append(L10nConfiguration.FILE_EXTENSION).toString();
     }
 
     /**
-     * Get the localization rule key
-     * @param ruleClass Localization rule class
-     * @return Rule key
+     * Get the Sonar resource for a source file, relative to the project base directory if inside
+     * @param project Sonar project
+     * @param file Source file
+     * @return Sonar resource
      */
-    public static String getRuleKey(Class<? extends L10nRule> ruleClass) {
-        return ruleClass.getSimpleName();
+    public static Resource<?> getResource(Project project, java.io.File file) {
+        String basedir = project.getFileSystem().getBasedir().getPath() + java.io.File.separatorChar;
+        String directory = file.getParent();
+        if (directory.startsWith(basedir)) {
+            directory = directory.substring(basedir.length());
+        }
+        return new File(Java.INSTANCE, directory, file.getName());
     }
 
     /**
-     * Convert Properties to Map
-     * @param properties Properties
-     * @param onlyKeys Only keep the keys? (set the values to null)
-     * @return Map
+     * Get the fallback locale of a locale, as ResourceBundle does: the locale without its variant, or without its
+     * country, or the default bundle file (fr_CA -&gt; fr -&gt; null)
+     * @param locale Locale (not null)
+     * @return Fallback locale (null for the default bundle file)
      */
-    public static Map<String, String> toMap(Properties properties, boolean onlyKeys) {
-        Map<String, String> map = new HashMap<String, String>(properties.size());
-        for (Entry<Object, Object> property : properties.entrySet()) {
-            if (property.getKey() instanceof String && property.getValue() instanceof String) {
-                map.put((String) property.getKey(), onlyKeys ? null : (String) property.getValue());
-            }
+    public static Locale getFallbackLocale(Locale locale) {
+        if (locale.getVariant().length() > 0) {
+            return new Locale(locale.getLanguage(), locale.getCountry());
+        }
+        if (locale.getCountry().length() > 0) {
+            return new Locale(locale.getLanguage());
         }
-        return map;
+        return null;
+    }
+
+    /**
+     * Get the localization rule key
+     * @param ruleClass Localization rule class
+     * @return Rule key
+     */
+    public static String getRuleKey(Class<? extends L10nRule> ruleClass) {
+        return ruleClass.getSimpleName();
     }
 
     /** Constructor (prevents from instantiation) */
@@ -0,0 +1,47 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.mutable.MutableObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the locales of an analysis: each locale String (file name suffix or configured locale) is parsed once,
+ * and an invalid one is logged once. It can be used concurrently.
+ * @author Mickaël Tricot
+ */
+public final class LocaleRegistry {
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(LocaleRegistry.class);
+
+    /** Locales: String -> locale wrapper (empty if the String is not a valid locale) */
+    private final ConcurrentMap<String, MutableObject<Locale>> locales =
+            new ConcurrentHashMap<String, MutableObject<Locale>>();
+
+    /**
+     * Get the locale of a String
+     * @param locale Locale String (such as a file name suffix)
+     * @param source Where the String comes from, for the log if it is invalid
+     * @return Locale (null if invalid)
+     */
+    public Locale getLocale(String locale, Object source) {
+        MutableObject<Locale> localeWrapper = locales.get(locale);
+        if (localeWrapper == null) {
+            localeWrapper = new MutableObject<Locale>();
+            try {
+                localeWrapper.setValue(LocaleUtils.toLocale(locale));
+            } catch (IllegalArgumentException ignored) {
+                // invalid locale
+            }
+            if (locales.putIfAbsent(locale, localeWrapper) == null && localeWrapper.getValue() == null) {
+                LOG.error("Invalid locale '{}' in '{}' (ignored wherever it is found)", locale, source);
+            }
+        }
+        return localeWrapper.getValue();
+    }
+}
@@ -0,0 +1,202 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Parser for the placeholders of the values: MessageFormat arguments ({0}, {1,number}...) and printf format specifiers
+ * (%s, %2$d...). A value is reduced to its placeholder signature, a canonical String that does not depend on the order
+ * nor the repetition of the placeholders, so that the signatures of two values can be compared directly.
+ * @author Mickaël Tricot
+ */
+public final class PlaceholderParser {
+
+    /** printf conversions (lower case), but %% and %n that do not consume any argument */
+    private static final String PRINTF_CONVERSIONS = "bhscdoxefgat";
+
+    /** printf flags, but the space that is mostly found in plain text ("50% off") */
+    private static final String PRINTF_FLAGS = "-#+0,(<";
+
+    /**
+     * Get the placeholder signature of a value, such as "{0}{1,number}%1$s%2$d": MessageFormat argument indices and
+     * format types (styles are ignored), then printf argument indices and conversions (flags, width and precision are
+     * ignored), each sorted by index
+     * @param value Value characters
+     * @param offset Value offset
+     * @param length Value length
+     * @return Signature (null if the value has no placeholder)
+     */
+    public static String getSignature(char[] value, int offset, int length) {
+        SortedSet<String> messageFormatArguments = null;
+        SortedSet<String> printfArguments = null;
+        int end = offset + length;
+        boolean quoted = false;
+        int printfIndex = 0;
+        int lastPrintfIndex = 0;
+        for (int i = offset; i < end; i++) {
+            char c = value[i];
+            if (c == '\'') {
+                if (i + 1 < end && value[i + 1] == '\'') {
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == '{' && !quoted) {
+                int argumentEnd = getMessageFormatArgumentEnd(value, i + 1, end);
+                String argument = getMessageFormatArgument(value, i + 1, argumentEnd);
+                if (argument != null) {
+                    if (messageFormatArguments == null) {
+                        messageFormatArguments = new TreeSet<String>();
+                    }
+                    messageFormatArguments.add(argument);
+                }
+                i = argumentEnd;
+            } else if (c == '%' && i + 1 < end) {
+                // printf specifiers are not affected by the MessageFormat quotes
+                int conversion = i + 1;
+                while (conversion < end && (Character.isDigit(value[conversion]) || value[conversion] == '$' ||
+                        value[conversion] == '.' || PRINTF_FLAGS.indexOf(value[conversion]) >= 0)) {
+                    conversion++;
+                }
+                if (conversion < end && PRINTF_CONVERSIONS.indexOf(Character.toLowerCase(value[conversion])) >= 0) {
+                    int index = getPrintfIndex(value, i + 1, conversion);
+                    if (index == 0) {
+                        index = ++printfIndex;
+                    } else if (index < 0) {
+                        index = lastPrintfIndex;
+                    }
+                    lastPrintfIndex = index;
+                    if (printfArguments == null) {
+                        printfArguments = new TreeSet<String>();
+                    }
+                    printfArguments.add(pad(index) + '$' + Character.toLowerCase(value[conversion]));
+                    i = conversion;
+                } else if (conversion < end && value[conversion] == '%') {
+                    i = conversion;
+                }
+            }
+        }
+        if (messageFormatArguments == null && printfArguments == null) {
+            return null;
+        }
+        StringBuilder signature = new StringBuilder();
+        if (messageFormatArguments != null) {
+            for (String argument : messageFormatArguments) {
+                signature.append('{').append(unpad(argument)).append('}');
+            }
+        }
+        if (printfArguments != null) {
+            for (String argument : printfArguments) {
+                signature.append('%').append(unpad(argument));
+            }
+        }
+        return signature.toString();
+    }
+
+    /**
+     * Get the end of a MessageFormat argument, skipping the nested braces and the quotes of its style
+     * @param value Value characters
+     * @param start Argument start (after the opening brace)
+     * @param end Value end
+     * @return Position of the closing brace (or the value end)
+     */
+    private static int getMessageFormatArgumentEnd(char[] value, int start, int end) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            char c = value[i];
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '{' && !quoted) {
+                depth++;
+            } else if (c == '}' && !quoted) {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Get a MessageFormat argument, as its index (padded, for the sort) and its format type
+     * @param value Value characters
+     * @param start Argument start (after the opening brace)
+     * @param end Argument end (closing brace)
+     * @return Argument, such as "0000000001,number" (null if it is not a valid argument)
+     */
+    private static String getMessageFormatArgument(char[] value, int start, int end) {
+        String argument = new String(value, start, end - start);
+        int typeStart = argument.indexOf(',');
+        String index = (typeStart < 0 ? argument : argument.substring(0, typeStart)).trim();
+        if (index.isEmpty() || index.length() > 9) {
+            return null;
+        }
+        for (int i = 0; i < index.length(); i++) {
+            if (!Character.isDigit(index.charAt(i))) {
+                return null;
+            }
+        }
+        String padded = pad(Integer.parseInt(index));
+        if (typeStart < 0) {
+            return padded;
+        }
+        int typeEnd = argument.indexOf(',', typeStart + 1);
+        String type = (typeEnd < 0 ? argument.substring(typeStart + 1) : argument.substring(typeStart + 1, typeEnd))
+                .trim().toLowerCase(Locale.ENGLISH);
+        return type.isEmpty() ? padded : padded + ',' + type;
+    }
+
+    /**
+     * Get the explicit argument index of a printf specifier
+     * @param value Value characters
+     * @param start Specifier start (after the percent sign)
+     * @param end Specifier conversion
+     * @return Index, 0 if not explicit, -1 for the previous argument (&lt; flag)
+     */
+    private static int getPrintfIndex(char[] value, int start, int end) {
+        if (start < end && value[start] == '<') {
+            return -1;
+        }
+        int index = 0;
+        for (int i = start; i < end && index < Integer.MAX_VALUE / 10; i++) {
+            if (value[i] == '$') {
+                return index;
+            }
+            if (!Character.isDigit(value[i])) {
+                break;
+            }
+            index = index * 10 + value[i] - '0';
+        }
+        return 0;
+    }
+
+    /**
+     * Pad an argument index, so that the arguments are sorted by index
+     * @param index Index
+     * @return Padded index
+     */
+    private static String pad(int index) {
+        String padded = Integer.toString(index);
+        return "0000000000".substring(padded.length()) + padded;
+    }
+
+    /**
+     * Remove the padding of an argument index
+     * @param argument Argument, starting with a padded index
+     * @return Argument
+     */
+    private static String unpad(String argument) {
+        int i = 0;
+        while (i < 9 && argument.charAt(i) == '0') {
+            i++;
+        }
+        return argument.substring(i);
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private PlaceholderParser() {
+    }
+}
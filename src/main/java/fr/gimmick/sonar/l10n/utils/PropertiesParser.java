@@ -0,0 +1,314 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming parser for properties files, following the java.util.Properties format (ISO-8859-1 encoding, comments,
+ * key/value separators, line continuations, escapes and unicode escapes). Keys and values are handed over to a handler
+ * as soon as they are decoded, without any intermediate Properties or Map. Excluded keys are matched before being
+ * decoded into Strings, and their values are never decoded. Values are handed over as characters, never as Strings. The
+ * input is either a stream, read through a buffer, or a byte buffer (e.g. a memory-mapped file) parsed in place.
+ * @author Mickaël Tricot
+ */
+public final class PropertiesParser {
+
+    /** Handler for the parsed properties */
+    public interface Handler {
+
+        /**
+         * Handle a property. The value characters are only valid during the call: a handler reduces them to the facts
+         * it needs, or copies them.
+         * @param key Key
+         * @param value Decoded value characters (null if the values are not parsed)
+         * @param offset Value offset
+         * @param length Value length
+         */
+        void property(String key, char[] value, int offset, int length);
+    }
+
+    /** Input buffer size */
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
+    /** Line buffer initial size */
+    private static final int LINE_BUFFER_SIZE = 256;
+
+    /** Buffer for decoding escaped keys and values */
+    private char[] decodeBuffer;
+
+    /** Characters of the last decoded line buffer section (line buffer or decode buffer) */
+    private char[] decoded;
+
+    /** Offset of the last decoded line buffer section */
+    private int decodedOffset;
+
+    /** Input stream (null if the input buffer holds the whole input) */
+    private final InputStream input;
+
+    /** Input buffer */
+    private final ByteBuffer inputBuffer;
+
+    /** Logical line buffer (continuations joined, escapes not decoded) */
+    private char[] lineBuffer;
+
+    /**
+     * Constructor
+     * @param input Input stream (nullable)
+     * @param inputBuffer Input buffer: whole input if there is no input stream, empty buffer to fill otherwise
+     */
+    private PropertiesParser(InputStream input, ByteBuffer inputBuffer) {
+        this.input = input;
+        this.inputBuffer = inputBuffer;
+        lineBuffer = new char[LINE_BUFFER_SIZE];
+        decodeBuffer = new char[LINE_BUFFER_SIZE];
+    }
+
+    /**
+     * Parse properties
+     * @param input Input stream (ISO-8859-1), not closed
+     * @param parseValues Decode the values? If not, the handler gets null values
+     * @param excludedKeys Matcher for the keys to exclude (they are not handed over to the handler)
+     * @param handler Properties handler
+     * @return Number of properties excluded
+     * @throws IOException Error while reading the input stream
+     * @throws IllegalArgumentException Malformed unicode escape
+     */
+    public static int parse(InputStream input, boolean parseValues, KeyPrefixMatcher excludedKeys, Handler handler)
+            throws IOException {
+        ByteBuffer inputBuffer = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        inputBuffer.limit(0);
+        return new PropertiesParser(input, inputBuffer).parse(parseValues, excludedKeys, handler);
+    }
+
+    /**
+     * Parse properties from a byte buffer, without copying it
+     * @param input Byte buffer (ISO-8859-1), from its position to its limit; its position is not modified
+     * @param parseValues Decode the values? If not, the handler gets null values
+     * @param excludedKeys Matcher for the keys to exclude (they are not handed over to the handler)
+     * @param handler Properties handler
+     * @return Number of properties excluded
+     * @throws IllegalArgumentException Malformed unicode escape
+     */
+    public static int parse(ByteBuffer input, boolean parseValues, KeyPrefixMatcher excludedKeys, Handler handler) {
+        try {
+            return new PropertiesParser(null, input.duplicate()).parse(parseValues, excludedKeys, handler);
+        } catch (IOException e) {
+            // no input stream to read from
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parse properties
+     * @param parseValues Decode the values?
+     * @param excludedKeys Matcher for the keys to exclude
+     * @param handler Properties handler
+     * @return Number of properties excluded
+     * @throws IOException Error while reading the input stream
+     */
+    private int parse(boolean parseValues, KeyPrefixMatcher excludedKeys, Handler handler) throws IOException {
+        int excluded = 0;
+        int limit;
+        while ((limit = readLine()) >= 0) {
+            int keyLength = 0;
+            int valueStart = limit;
+            boolean hasSeparator = false;
+            boolean precedingBackslash = false;
+            while (keyLength < limit) {
+                char c = lineBuffer[keyLength];
+                if ((c == '=' || c == ':') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    hasSeparator = true;
+                    break;
+                } else if (isWhiteSpace(c) && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyLength++;
+            }
+            while (valueStart < limit) {
+                char c = lineBuffer[valueStart];
+                if (!isWhiteSpace(c)) {
+                    if (!hasSeparator && (c == '=' || c == ':')) {
+                        hasSeparator = true;
+                    } else {
+                        break;
+                    }
+                }
+                valueStart++;
+            }
+            int decodedKeyLength = decode(0, keyLength);
+            if (!excludedKeys.isEmpty() && excludedKeys.matches(decoded, decodedOffset, decodedKeyLength)) {
+                excluded++;
+            } else {
+                String key = new String(decoded, decodedOffset, decodedKeyLength);
+                if (parseValues) {
+                    int decodedValueLength = decode(valueStart, limit);
+                    handler.property(key, decoded, decodedOffset, decodedValueLength);
+                } else {
+                    handler.property(key, null, 0, 0);
+                }
+            }
+        }
+        return excluded;
+    }
+
+    /**
+     * Decode the escapes of a line buffer section: the decoded characters are available from the decoded offset
+     * @param start Start (inclusive)
+     * @param end End (exclusive)
+     * @return Decoded length
+     */
+    private int decode(int start, int end) {
+        int position = start;
+        while (position < end && lineBuffer[position] != '\\') {
+            position++;
+        }
+        if (position == end) {
+            decoded = lineBuffer;
+            decodedOffset = start;
+            return end - start;
+        }
+        if (decodeBuffer.length < end - start) {
+            decodeBuffer = new char[lineBuffer.length];
+        }
+        int length = position - start;
+        System.arraycopy(lineBuffer, start, decodeBuffer, 0, length);
+        while (position < end) {
+            char c = lineBuffer[position++];
+            if (c == '\\') {
+                if (position == end) {
+                    break;
+                }
+                c = lineBuffer[position++];
+                if (c == 'u') {
+                    if (position + 4 > end) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(lineBuffer[position++], 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            decodeBuffer[length++] = c;
+        }
+        decoded = decodeBuffer;
+        decodedOffset = 0;
+        return length;
+    }
+
+    /**
+     * Is the character a key/value white space?
+     * @param c Character
+     * @return TRUE if white space
+     */
+    private static boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * Is the end of the input reached? Fill the input buffer from the input stream if needed
+     * @return TRUE if there is nothing left to read
+     * @throws IOException Error while reading the input stream
+     */
+    private boolean isEndOfInput() throws IOException {
+        if (!inputBuffer.hasRemaining() && input != null) {
+            int read = input.read(inputBuffer.array(), inputBuffer.arrayOffset(), inputBuffer.capacity());
+            inputBuffer.position(0);
+            inputBuffer.limit(Math.max(read, 0));
+        }
+        return !inputBuffer.hasRemaining();
+    }
+
+    /**
+     * Read the next character
+     * @return Character, or -1 at the end of the input
+     * @throws IOException Error while reading the input stream
+     */
+    private int read() throws IOException {
+        return isEndOfInput() ? -1 : inputBuffer.get() & 0xFF;
+    }
+
+    /**
+     * Read a logical line into the line buffer: skip blank and comment lines, join the continuation lines and skip
+     * the leading white spaces
+     * @return Line length, or -1 at the end of the input
+     * @throws IOException Error while reading the input stream
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        boolean skipWhiteSpace = true;
+        boolean isCommentLine = false;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+        boolean skipLF = false;
+        while (true) {
+            int read = read();
+            if (read < 0) {
+                if (isCommentLine || length == 0) {
+                    return -1;
+                }
+                return precedingBackslash ? length - 1 : length;
+            }
+            char c = (char) read;
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (skipWhiteSpace) {
+                if (isWhiteSpace(c) || !appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (length == 0 && !isCommentLine && (c == '#' || c == '!')) {
+                isCommentLine = true;
+                continue;
+            }
+            if (c != '\n' && c != '\r') {
+                if (!isCommentLine) {
+                    if (length == lineBuffer.length) {
+                        char[] newLineBuffer = new char[length * 2];
+                        System.arraycopy(lineBuffer, 0, newLineBuffer, 0, length);
+                        lineBuffer = newLineBuffer;
+                    }
+                    lineBuffer[length++] = c;
+                    precedingBackslash = c == '\\' && !precedingBackslash;
+                }
+            } else if (isCommentLine || length == 0) {
+                isCommentLine = false;
+                skipWhiteSpace = true;
+                length = 0;
+            } else if (isEndOfInput()) {
+                return precedingBackslash ? length - 1 : length;
+            } else if (precedingBackslash) {
+                length--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                skipLF = c == '\r';
+            } else {
+                return length;
+            }
+        }
+    }
+}
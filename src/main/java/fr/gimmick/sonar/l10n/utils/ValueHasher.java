@@ -0,0 +1,38 @@
+package fr.gimmick.sonar.l10n.utils;
+
+/**
+ * Hasher for the values: a value is reduced to a 64-bit hash (FNV-1a on the characters, then mixed), so that the
+ * values of two files can be compared without retaining them. Equal hashes are only a hint: the values must then be
+ * compared again.
+ * @author Mickaël Tricot
+ */
+public final class ValueHasher {
+
+    /** FNV-1a 64-bit offset basis */
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    /** FNV-1a 64-bit prime */
+    private static final long PRIME = 0x100000001B3L;
+
+    /**
+     * Get the hash of a value
+     * @param value Value characters
+     * @param offset Value offset
+     * @param length Value length
+     * @return Hash
+     */
+    public static long hash(char[] value, int offset, int length) {
+        long hash = OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ value[i]) * PRIME;
+        }
+        // final mix (MurmurHash3), so that close values do not get close hashes
+        hash = (hash ^ hash >>> 33) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ hash >>> 33) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /** Constructor (prevents from instantiation) */
+    private ValueHasher() {
+    }
+}
@@ -0,0 +1,218 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import fr.gimmick.sonar.l10n.model.Bundle;
+import fr.gimmick.sonar.l10n.model.BundleId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.Violation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sink for the violations of a localization rule: the active rule is resolved once, the resources are cached per
+ * bundle and locale (or per source file), and the violations are saved in batches. A deferred sink keeps all its
+ * violations until it is flushed, so that a rule can be checked on another thread than the one saving the violations.
+ * @author Mickaël Tricot
+ */
+public final class ViolationSink {
+
+    /** Number of violations saved at once */
+    private static final int BATCH_SIZE = 1000;
+
+    /** Logger */
+    private static final Logger LOG = LoggerFactory.getLogger(ViolationSink.class);
+
+    /** Sonar active rule */
+    private final ActiveRule activeRule;
+
+    /** Keep all the violations until the sink is flushed? */
+    private final boolean deferred;
+
+    /** Maximum number of violations per resource (0 for no limit) */
+    private final int maxViolationsPerResource;
+
+    /** Sonar project */
+    private final Project project;
+
+    /** Resources: bundle ID -> locale -> resource (keyed by ID, so that the visited bundles are not retained) */
+    private final Map<BundleId, Map<Locale, ResourceViolations>> resources;
+
+    /** Sonar sensor context */
+    private final SensorContext sensorContext;
+
+    /** Resources of the source files: file -> resource */
+    private final Map<File, ResourceViolations> sourceResources;
+
+    /** Analysis statistics */
+    private final L10nStatistics statistics;
+
+    /** Number of violations added since the last flush */
+    private long added;
+
+    /** Violations not saved yet */
+    private List<Violation> violations;
+
+    /**
+     * Constructor
+     * @param activeRule Sonar active rule
+     * @param project Sonar project
+     * @param sensorContext Sonar sensor context
+     * @param maxViolationsPerResource Maximum number of violations per resource (0 for no limit)
+     * @param deferred Keep all the violations until the sink is flushed?
+     * @param statistics Analysis statistics
+     */
+    ViolationSink(ActiveRule activeRule, Project project, SensorContext sensorContext, int maxViolationsPerResource,
+            boolean deferred, L10nStatistics statistics) {
+        this.activeRule = activeRule;
+        this.project = project;
+        this.sensorContext = sensorContext;
+        this.maxViolationsPerResource = maxViolationsPerResource;
+        this.deferred = deferred;
+        this.statistics = statistics;
+        resources = new HashMap<BundleId, Map<Locale, ResourceViolations>>();
+        sourceResources = new HashMap<File, ResourceViolations>();
+        violations = new ArrayList<Violation>(BATCH_SIZE);
+    }
+
+    /**
+     * Add a violation
+     * @param bundle Bundle
+     * @param locale Locale (nullable)
+     * @param message Violation message
+     */
+    public void add(Bundle bundle, Locale locale, String message) {
+        add(getResource(bundle, locale), null, message);
+    }
+
+    /**
+     * Add a violation on a source file
+     * @param file Source file
+     * @param line Line (starting at 1)
+     * @param message Violation message
+     */
+    public void add(File file, int line, String message) {
+        ResourceViolations resource = sourceResources.get(file);
+        if (resource == null) {
+            resource = new ResourceViolations(L10nUtils.getResource(project, file));
+            sourceResources.put(file, resource);
+        }
+        add(resource, line, message);
+    }
+
+    /**
+     * Add a violation on a resource
+     * @param resource Resource violations
+     * @param line Line (nullable)
+     * @param message Violation message
+     */
+    private void add(ResourceViolations resource, Integer line, String message) {
+        if (maxViolationsPerResource > 0 && resource.count >= maxViolationsPerResource) {
+            resource.dropped++;
+            return;
+        }
+        resource.count++;
+        added++;
+        Violation violation = Violation.create(activeRule, resource.resource);
+        violation.setMessage(message);
+        violation.setLineId(line);
+        violations.add(violation);
+        if (!deferred && violations.size() >= BATCH_SIZE) {
+            save();
+        }
+    }
+
+    /**
+     * Save the pending violations, and log the violations dropped because of the limit per resource
+     */
+    void flush() {
+        save();
+        String ruleKey = activeRule.getRule().getKey();
+        statistics.add(L10nStatistics.VIOLATIONS, added);
+        statistics.add(L10nStatistics.getRuleName(ruleKey, L10nStatistics.VIOLATIONS), added);
+        added = 0;
+        for (Map<Locale, ResourceViolations> bundleResources : resources.values()) {
+            for (ResourceViolations resource : bundleResources.values()) {
+                logDropped(ruleKey, resource);
+            }
+        }
+        for (ResourceViolations resource : sourceResources.values()) {
+            logDropped(ruleKey, resource);
+        }
+    }
+
+    /**
+     * Log the violations of a resource dropped because of the limit per resource
+     * @param ruleKey Rule key
+     * @param resource Resource violations
+     */
+    private void logDropped(String ruleKey, ResourceViolations resource) {
+        if (resource.dropped > 0) {
+            statistics.add(L10nStatistics.DROPPED_VIOLATIONS, resource.dropped);
+            LOG.info("{} violations of rule '{}' not saved for resource '{}' (limit: {})",
+                    new Object[]{resource.dropped, ruleKey, resource.resource, maxViolationsPerResource});
+            resource.dropped = 0;
+        }
+    }
+
+    /**
+     * Get the resource for a bundle and a locale
+     * @param bundle Bundle
+     * @param locale Locale (nullable)
+     * @return Resource violations
+     */
+    private ResourceViolations getResource(Bundle bundle, Locale locale) {
+        Map<Locale, ResourceViolations> bundleResources = resources.get(bundle.getId());
+        if (bundleResources == null) {
+            bundleResources = new HashMap<Locale, ResourceViolations>();
+            resources.put(bundle.getId(), bundleResources);
+        }
+        ResourceViolations resource = bundleResources.get(locale);
+        if (resource == null) {
+            resource = new ResourceViolations(L10nUtils.getResource(project, bundle, locale));
+            bundleResources.put(locale, resource);
+        }
+        return resource;
+    }
+
+    /** Save the pending violations, in batches */
+    private void save() {
+        long start = System.nanoTime();
+        for (int from = 0; from < violations.size(); from += BATCH_SIZE) {
+            sensorContext.saveViolations(violations.subList(from, Math.min(from + BATCH_SIZE, violations.size())));
+        }
+        if (!violations.isEmpty()) {
+            violations = new ArrayList<Violation>(BATCH_SIZE);
+        }
+        statistics.addTime(L10nStatistics.SAVING, System.nanoTime() - start);
+    }
+
+    /** Resource and its violation counters */
+    private static final class ResourceViolations {
+
+        /** Number of violations added */
+        private int count;
+
+        /** Number of violations dropped (limit per resource) */
+        private int dropped;
+
+        /** Sonar resource */
+        private final Resource<?> resource;
+
+        /**
+         * Constructor
+         * @param resource Sonar resource
+         */
+        ResourceViolations(Resource<?> resource) {
+            this.resource = resource;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package fr.gimmick.sonar.l10n.model;
+
+import fr.gimmick.sonar.l10n.rules.L10nRule.Flag;
+import fr.gimmick.sonar.l10n.utils.KeyPrefixMatcher;
+import fr.gimmick.sonar.l10n.utils.L10nStatistics;
+import fr.gimmick.sonar.l10n.utils.LocaleRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the key usage scanner: whole-word key matches, and undefined key literals
+ * @author Mickaël Tricot
+ */
+public final class KeyUsageScannerTest {
+
+    /** Keys of the bundle project */
+    private static final String KEYS = "user.name=Name\nuser.name.full=Full name\nmenu.été=Summer\nok=OK\n" +
+            "hidden.key=Hidden\n";
+
+    /** Temporary folder */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Scan source files
+     * @param threads Number of threads
+     * @param mmapThreshold Size from which the files are memory-mapped (0 for never)
+     * @param undefinedKeys Look for undefined keys?
+     * @param sources Source file contents (UTF-8)
+     * @return Key usages
+     * @throws IOException Error while writing the files
+     */
+    private KeyUsages scan(int threads, long mmapThreshold, boolean undefinedKeys, String... sources)
+            throws IOException {
+        File bundleFile = new File(folder.getRoot(), "messages.properties");
+        FileUtils.writeStringToFile(bundleFile, KEYS, "ISO-8859-1");
+        KeyPrefixMatcher excludedKeys = KeyPrefixMatcher.compile(Arrays.asList("user.excluded."));
+        L10nStatistics statistics = new L10nStatistics();
+        BundleProject bundleProject = new BundleProjectBuilder(excludedKeys, EnumSet.of(Flag.UsesKeys), 1, 0, null,
+                new LocaleRegistry(), statistics).build(Collections.singletonList(bundleFile));
+        List<File> sourceFiles = new ArrayList<File>();
+        for (int i = 0; i < sources.length; i++) {
+            File sourceFile = new File(folder.getRoot(), "Source" + i + ".java");
+            FileUtils.writeStringToFile(sourceFile, sources[i], "UTF-8");
+            sourceFiles.add(sourceFile);
+        }
+        return new KeyUsageScanner(excludedKeys, threads, mmapThreshold, statistics).scan(bundleProject,
+                sourceFiles, undefinedKeys);
+    }
+
+    /**
+     * Get the undefined keys
+     * @param keyUsages Key usages
+     * @return Undefined keys: "key@line"
+     */
+    private static List<String> getUndefinedKeys(KeyUsages keyUsages) {
+        List<String> undefinedKeys = new ArrayList<String>();
+        for (KeyUsages.Reference reference : keyUsages.getUndefinedKeys()) {
+            undefinedKeys.add(reference.getKey() + '@' + reference.getLine());
+        }
+        return undefinedKeys;
+    }
+
+    /**
+     * A key is only used between two characters that cannot be part of a key
+     * @throws IOException Error while writing the files
+     */
+    @Test
+    public void testWholeWordMatches() throws IOException {
+        KeyUsages keyUsages = scan(1, 0, false, "a(\"user.name.fullx\"); b(\"xok\", \"ok_\", \"ok-\", \"ok.\");",
+                "String s = get(\"user.name\");", "// menu.été");
+        assertTrue(keyUsages.isUsed("user.name"));
+        assertFalse(keyUsages.isUsed("user.name.full"));
+        assertFalse(keyUsages.isUsed("ok"));
+        assertTrue(keyUsages.isUsed("menu.été"));
+        assertFalse(keyUsages.isUsed("hidden.key"));
+        // keys not scanned for
+        assertTrue(keyUsages.isUsed("unknown.key"));
+
+        assertFalse(scan(1, 0, false, "éok éuser.name user.nameé").isUsed("ok"));
+        assertTrue(scan(1, 0, false, "ok").isUsed("ok"));
+        assertTrue(scan(1, 0, false, "(ok)").isUsed("ok"));
+        assertTrue(scan(1, 0, false, "x=user.name.full;").isUsed("user.name.full"));
+        assertFalse(scan(1, 0, false, "x=user.name.full;").isUsed("user.name"));
+    }
+
+    /**
+     * A key-like literal (on a single line) is an undefined key if its first segment is a key namespace, and if it is
+     * neither a key nor an excluded key
+     * @throws IOException Error while writing the files
+     */
+    @Test
+    public void testUndefinedKeys() throws IOException {
+        String source = "get(\"user.missing\");\n" +
+                "get('user.other');\n" +
+                "get(\"user.name\"); get(\"other.missing\"); get(\"user\");\n" +
+                "get(\"user.with space\"); get(\"user.with\\\"quote\"); get(\"user.prefix.\"); get(\".user.x\");\n" +
+                "get(\"user.excluded.key\"); get(\"menu.étés\");\n" +
+                "get(\"user.unterminated);\n" +
+                "get(\"menu.last\");";
+        assertEquals(Arrays.asList("user.missing@1", "user.other@2", "menu.étés@5", "menu.last@7"),
+                getUndefinedKeys(scan(1, 0, true, source)));
+        assertEquals(Collections.<String>emptyList(), getUndefinedKeys(scan(1, 0, false, source)));
+    }
+
+    /**
+     * The results do not depend on the threads and on the memory-mapping, and keep the order of the source files
+     * @throws IOException Error while writing the files
+     */
+    @Test
+    public void testThreadsAndMemoryMapping() throws IOException {
+        String[] sources = new String[600];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = "get(\"user.missing" + i + "\");\nget(\"" + (i % 2 == 0 ? "ok" : "user.name") + "\");";
+        }
+        List<String> expected = getUndefinedKeys(scan(1, 0, true, sources));
+        assertEquals(sources.length, expected.size());
+        for (int threads = 1; threads <= 4; threads++) {
+            for (long mmapThreshold : new long[]{0, 1}) {
+                KeyUsages keyUsages = scan(threads, mmapThreshold, true, sources);
+                assertEquals(expected, getUndefinedKeys(keyUsages));
+                assertTrue(keyUsages.isUsed("ok"));
+                assertTrue(keyUsages.isUsed("user.name"));
+                assertFalse(keyUsages.isUsed("user.name.full"));
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the key matcher, compared to a naive search
+ * @author Mickaël Tricot
+ */
+public final class KeyMatcherTest {
+
+    /**
+     * Find the keys in a text with the matcher
+     * @param keys Keys
+     * @param text Text
+     * @return Matches: "end index:key"
+     * @throws UnsupportedEncodingException Never
+     */
+    private static Set<String> match(List<String> keys, String text) throws UnsupportedEncodingException {
+        KeyMatcher matcher = KeyMatcher.compile(keys);
+        Set<String> matches = new TreeSet<String>();
+        byte[] bytes = text.getBytes("UTF-8");
+        int state = KeyMatcher.ROOT;
+        for (int i = 0; i < bytes.length; i++) {
+            state = matcher.next(state, bytes[i]);
+            for (int match = matcher.getMatchState(state); match >= 0; match = matcher.getNextMatchState(match)) {
+                int key = matcher.getKey(match);
+                assertEquals(keys.get(key).getBytes("UTF-8").length, matcher.getKeyLength(key));
+                matches.add(i + ":" + keys.get(key));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Find the keys in a text with a naive search
+     * @param keys Keys
+     * @param text Text
+     * @return Matches: "end index:key" (end index in bytes)
+     * @throws UnsupportedEncodingException Never
+     */
+    private static Set<String> search(List<String> keys, String text) throws UnsupportedEncodingException {
+        Set<String> matches = new TreeSet<String>();
+        // one character per UTF-8 byte
+        String bytes = new String(text.getBytes("UTF-8"), "ISO-8859-1");
+        for (String key : keys) {
+            String keyBytes = new String(key.getBytes("UTF-8"), "ISO-8859-1");
+            for (int i = bytes.indexOf(keyBytes); !key.isEmpty() && i >= 0; i = bytes.indexOf(keyBytes, i + 1)) {
+                matches.add(i + keyBytes.length() - 1 + ":" + key);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Build a random string
+     * @param random Random
+     * @param alphabet Characters
+     * @param length Length
+     * @return String
+     */
+    private static String random(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Overlapping keys, all matched
+     * @throws Exception Error
+     */
+    @Test
+    public void testOverlappingKeys() throws Exception {
+        List<String> keys = Arrays.asList("he", "she", "his", "hers");
+        assertEquals(new TreeSet<String>(Arrays.asList("3:she", "3:he", "5:hers")), match(keys, "ushers"));
+        assertEquals(search(keys, "shishershehe"), match(keys, "shishershehe"));
+    }
+
+    /**
+     * Keys which are suffixes or prefixes of other keys, matched through the failure states
+     * @throws Exception Error
+     */
+    @Test
+    public void testSuffixKeys() throws Exception {
+        List<String> keys = Arrays.asList("menu.file.open", "file.open", "open", "menu.file", "menu");
+        assertEquals(new TreeSet<String>(Arrays.asList("3:menu", "8:menu.file", "13:menu.file.open",
+                "13:file.open", "13:open")), match(keys, "menu.file.open"));
+        assertEquals(search(keys, "x.menu.file.opener.file.open"), match(keys, "x.menu.file.opener.file.open"));
+    }
+
+    /**
+     * Keys with non ASCII characters (negative bytes) and empty keys (never matched)
+     * @throws Exception Error
+     */
+    @Test
+    public void testNonAsciiAndEmptyKeys() throws Exception {
+        List<String> keys = Arrays.asList("menu.été", "", "é", "€");
+        String text = "\"menu.été\" costs 5€";
+        assertEquals(search(keys, text), match(keys, text));
+        assertEquals(4, match(keys, text).size());
+        assertEquals(Collections.<String>emptySet(), match(Collections.<String>emptyList(), text));
+    }
+
+    /**
+     * Random keys and texts: a small alphabet for many overlaps, and many keys for the growth of the transition table
+     * (and all the root transitions)
+     * @throws Exception Error
+     */
+    @Test
+    public void testRandomKeys() throws Exception {
+        Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            List<String> keys = new ArrayList<String>();
+            for (int j = random.nextInt(40); j >= 0; j--) {
+                keys.add(random(random, "abc.", 1 + random.nextInt(6)));
+            }
+            // unique keys: a duplicate key is only matched as its last index
+            keys = new ArrayList<String>(new TreeSet<String>(keys));
+            String text = random(random, "abc.", 300);
+            assertEquals(keys.toString(), search(keys, text), match(keys, text));
+        }
+        StringBuilder alphabet = new StringBuilder();
+        for (char c = 1; c < 256; c++) {
+            alphabet.append(c);
+        }
+        Set<String> uniqueKeys = new TreeSet<String>();
+        for (int j = 0; j < 20000; j++) {
+            uniqueKeys.add(random(random, j % 2 == 0 ? "abcd" : alphabet.toString(), 1 + random.nextInt(8)));
+        }
+        List<String> keys = new ArrayList<String>(uniqueKeys);
+        String text = random(random, "abcd", 5000) + random(random, alphabet.toString(), 5000);
+        assertEquals(search(keys, text), match(keys, text));
+    }
+
+    /**
+     * The number of states is limited
+     */
+    @Test
+    public void testTooManyKeys() {
+        char[] key = new char[1 << 23];
+        Arrays.fill(key, 'k');
+        try {
+            KeyMatcher.compile(Arrays.asList(new String(key), new String(key)));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package fr.gimmick.sonar.l10n.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the properties parser, compared to java.util.Properties
+ * @author Mickaël Tricot
+ */
+public final class PropertiesParserTest {
+
+    /** Characters of the random properties files: separators, escapes, line ends, comments and ISO-8859-1 letters */
+    private static final String RANDOM_CHARACTERS = "ab=:  \t\f\\\\u\u00e9\r\n\r\n#!";
+
+    /** Matcher for no key */
+    private static final KeyPrefixMatcher NO_KEY = KeyPrefixMatcher.compile(Collections.<String>emptyList());
+
+    /**
+     * Load properties with java.util.Properties
+     * @param content Content (ISO-8859-1)
+     * @return Properties: key -> value
+     * @throws IOException Error while reading
+     */
+    private static Map<String, String> load(String content) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(content.getBytes("ISO-8859-1")));
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key));
+        }
+        return values;
+    }
+
+    /**
+     * Parse properties from a stream
+     * @param input Input stream
+     * @param parseValues Decode the values?
+     * @param excludedKeys Matcher for the keys to exclude
+     * @return Properties: key -> value
+     * @throws IOException Error while reading
+     */
+    private static Map<String, String> parse(InputStream input, boolean parseValues, KeyPrefixMatcher excludedKeys)
+            throws IOException {
+        Collector collector = new Collector();
+        PropertiesParser.parse(input, parseValues, excludedKeys, collector);
+        return collector.values;
+    }
+
+    /**
+     * Parse properties from a byte buffer
+     * @param input Byte buffer
+     * @return Properties: key -> value
+     */
+    private static Map<String, String> parse(ByteBuffer input) {
+        Collector collector = new Collector();
+        PropertiesParser.parse(input, true, NO_KEY, collector);
+        return collector.values;
+    }
+
+    /**
+     * Check that the parser gives the same properties as java.util.Properties, from a stream and from a byte buffer
+     * @param content Content (ISO-8859-1)
+     * @throws IOException Error while reading
+     */
+    private static void assertParsed(String content) throws IOException {
+        Map<String, String> expected = load(content);
+        byte[] bytes = content.getBytes("ISO-8859-1");
+        assertEquals(content, expected, parse(new ByteArrayInputStream(bytes), true, NO_KEY));
+        // the byte buffer is parsed from its position to its limit, without modifying them
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 2);
+        buffer.put((byte) 'x').put(bytes).put((byte) 'x');
+        buffer.position(1).limit(bytes.length + 1);
+        assertEquals(content, expected, parse(buffer));
+        assertEquals(1, buffer.position());
+    }
+
+    /**
+     * Key/value separators
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testSeparators() throws IOException {
+        assertParsed("a=b\nc:d\ne f\ng\th\ni\fj\n");
+        assertParsed("a = b\nc : d\ne   f\ng =: h\ni := j\nk == l\n");
+        assertParsed("a=\nb\nc:\n d = \n");
+        assertParsed("=a\n:b\n  = c\n");
+    }
+
+    /**
+     * Continuation lines
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testContinuationLines() throws IOException {
+        assertParsed("a=b\\\n   c\nd=e\n");
+        assertParsed("a=b\\\n\\\n  c\\\n");
+        assertParsed("a\\\n b=c\n");
+        assertParsed("a=b\\\n\nc=d\n");
+        assertParsed("a=b\\\\\nc=d\n");
+        assertParsed("a=b\\\\\\\n c\n");
+    }
+
+    /**
+     * Line ends: \n, \r\n and \r alone
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testLineEnds() throws IOException {
+        assertParsed("a=b\r\nc=d\r\n");
+        assertParsed("a=b\rc=d\r");
+        assertParsed("a=b\\\r\n  c\r\nd=e");
+        assertParsed("a=b\\\r  c\rd=e");
+        assertParsed("\r\n\r\n  \r\na=b\n\r\n");
+    }
+
+    /**
+     * Comment lines, which do not continue even if they end with a backslash
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testCommentLines() throws IOException {
+        assertParsed("# comment\na=b\n! comment\nc=d\n");
+        assertParsed("# comment \\\na=b\n");
+        assertParsed("! comment \\\r\na=b\r\n");
+        assertParsed("   # indented comment\na=b # not a comment\n");
+        assertParsed("a=b\\\n# not a comment\n");
+        assertParsed("# comment at the end \\");
+    }
+
+    /**
+     * End of the input: without a line end, or after a backslash
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testEndOfInput() throws IOException {
+        assertParsed("");
+        assertParsed("a=b");
+        assertParsed("a=b\\");
+        assertParsed("a=b\\\n");
+        assertParsed("a=b\\\\");
+        assertParsed("a\\");
+        assertParsed("   ");
+    }
+
+    /**
+     * Escapes, unicode escapes and ISO-8859-1 characters
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testEscapes() throws IOException {
+        assertParsed("a=\\u00e9t\\u00C9 \\u20AC\n");
+        assertParsed("\\u0041\\u0042=c\n");
+        assertParsed("a=\\t\\n\\r\\f\\q\\\\\\\"\n");
+        assertParsed("a=\u00e9t\u00e9\n\u00e9=b\n");
+        assertParsed("a=\\ b\\  \n");
+    }
+
+    /**
+     * Keys with escaped separators and white spaces
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testEscapedSeparatorsInKeys() throws IOException {
+        assertParsed("a\\=b=c\n");
+        assertParsed("a\\:b:c\n");
+        assertParsed("a\\ b c\n");
+        assertParsed("a\\\\=b\n");
+        assertParsed("a\\#b=c\n#d=e\n");
+    }
+
+    /**
+     * Lines longer than the line and input buffers
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testLongLines() throws IOException {
+        char[] value = new char[20000];
+        Arrays.fill(value, 'v');
+        String longValue = new String(value);
+        assertParsed("a=" + longValue + "\nb=" + longValue + "\\\n  " + longValue + "\nc=\\u00e9" + longValue + '\n');
+        assertParsed(longValue + '=' + longValue + "\\");
+    }
+
+    /**
+     * Malformed unicode escapes are rejected, as by java.util.Properties
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testMalformedUnicodeEscape() throws IOException {
+        for (String content : new String[]{"a=\\u00g9\n", "a=\\u00\n", "a=\\u"}) {
+            try {
+                parse(new ByteArrayInputStream(content.getBytes("ISO-8859-1")), true, NO_KEY);
+                fail(content);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Values not decoded, and excluded keys
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testValuesNotParsedAndExcludedKeys() throws IOException {
+        String content = "a.b=1\na.c=2\nb\\u002Ec=3\nbc=4\n";
+        Collector collector = new Collector();
+        int excluded = PropertiesParser.parse(new ByteArrayInputStream(content.getBytes("ISO-8859-1")), false,
+                KeyPrefixMatcher.compile(Arrays.asList("a.", "b.")), collector);
+        assertEquals(3, excluded);
+        assertEquals(Collections.singleton("bc"), collector.values.keySet());
+        assertNull(collector.values.get("bc"));
+    }
+
+    /**
+     * Random contents, made of the characters with a special meaning
+     * @throws IOException Error while reading
+     */
+    @Test
+    public void testRandomContents() throws IOException {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int length = random.nextInt(40); length > 0; length--) {
+                content.append(RANDOM_CHARACTERS.charAt(random.nextInt(RANDOM_CHARACTERS.length())));
+            }
+            // malformed unicode escapes are tested on their own
+            assertParsed(content.toString().replace("\\u", "\\u00e9"));
+        }
+    }
+
+    /** Collector of the parsed properties */
+    private static final class Collector implements PropertiesParser.Handler {
+
+        /** Properties: key -> value (the last value of a key wins, as in java.util.Properties) */
+        private final Map<String, String> values = new LinkedHashMap<String, String>();
+
+        @Override
+        public void property(String key, char[] value, int offset, int length) {
+            values.put(key, value == null ? null : new String(value, offset, length));
+        }
+    }
+}